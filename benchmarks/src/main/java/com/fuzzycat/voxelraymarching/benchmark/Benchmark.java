@@ -0,0 +1,47 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Minimal timing harness shared by the benchmark entry points. Each benchmark is warmed up first so the JIT has compiled
+ * the hot loops, then sampled one iteration at a time with System.nanoTime(). Options and summaries of the samples come
+ * from util.CommandLine and util.Timings. */
+public class Benchmark {
+
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static long[] measure(Runnable task, int warmupIterations, int measureIterations) {
+		for (int i = 0; i < warmupIterations; i++) {
+			task.run();
+		}
+		long[] samples = new long[measureIterations];
+		for (int i = 0; i < measureIterations; i++) {
+			long start = System.nanoTime();
+			task.run();
+			samples[i] = System.nanoTime() - start;
+		}
+		return samples;
+	}
+
+	/* Bytes allocated so far by each live thread, including pool workers. */
+	public static Map<Long, Long> allocatedBytes() {
+		long[] ids = THREAD_BEAN.getAllThreadIds();
+		long[] bytes = THREAD_BEAN.getThreadAllocatedBytes(ids);
+		Map<Long, Long> allocated = new HashMap<Long, Long>();
+		for (int i = 0; i < ids.length; i++) {
+			if (bytes[i] >= 0) allocated.put(ids[i], bytes[i]);
+		}
+		return allocated;
+	}
+
+	/* Bytes allocated by all threads since 'before' was taken with allocatedBytes(). */
+	public static long allocatedSince(Map<Long, Long> before) {
+		long allocated = 0;
+		for (Map.Entry<Long, Long> thread : allocatedBytes().entrySet()) {
+			allocated += thread.getValue() - before.getOrDefault(thread.getKey(), 0L);
+		}
+		return allocated;
+	}
+}
@@ -0,0 +1,60 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import com.fuzzycat.voxelraymarching.ImageFiles;
+import com.fuzzycat.voxelraymarching.graphics.Camera;
+import com.fuzzycat.voxelraymarching.graphics.Material;
+import com.fuzzycat.voxelraymarching.graphics.Scene;
+import com.fuzzycat.voxelraymarching.voxel.VoxelModel;
+
+/* Loads the shipped models headlessly, with the photosphere and material settings listed in Main. */
+public class BenchmarkScene {
+
+	/* Fixed camera poses, orbiting the center of the unit cube like the mouse-look in Main. */
+	public static final String CLOSE_UP = "close", FAR = "far", SKY = "sky";
+	public static final String[] POSES = { CLOSE_UP, FAR, SKY };
+	/* Close views looking mostly along z, x and y, the three strides of the linear cell layout. */
+	public static final String FRONT = "front", SIDE = "side", TOP = "top";
+	public static final String[] VIEW_DIRECTIONS = { FRONT, SIDE, TOP };
+
+	/* 'model' is "skull", "horse", "teacup" or the path of any other bitmap file. */
+	public static Scene load(String model, int dimension) {
+		return load(model, dimension, new VoxelModel.Options());
+	}
+
+	public static Scene load(String model, int dimension, VoxelModel.Options options) {
+		String modelFile = model;
+		String photoSphereFile = "beach_blurred_1.png";
+		Material material = new Material(0.3, 0xffffff);
+		if (model.equals("skull")) {
+			modelFile = "skull_330x.bin";
+		} else if (model.equals("horse")) {
+			modelFile = "horse_330x.bin";
+			photoSphereFile = "beach_blurred_2.png";
+			material = new Material(0.8, 0xff3c0b);
+		} else if (model.equals("teacup")) {
+			modelFile = "teacup_330x.bin";
+			photoSphereFile = "beach_blurred_3.png";
+			material = new Material(0.2, 0xff4000);
+		}
+
+		return new Scene(VoxelModel.load(modelFile, dimension, options), ImageFiles.loadPhotoSphere(photoSphereFile), material);
+	}
+
+	public static void setPose(Camera cam, String pose) {
+		if (pose.equals(CLOSE_UP)) {
+			cam.orbit(0.6, 0.3, 0.9);
+		} else if (pose.equals(FAR)) {
+			cam.orbit(0.6, 0.3, 0.9 * Math.pow(1.2, 6));
+		} else if (pose.equals(FRONT)) {
+			cam.orbit(0.0, 0.0, 0.9);
+		} else if (pose.equals(SIDE)) {
+			cam.orbit(0.5 * Math.PI, 0.0, 0.9);
+		} else if (pose.equals(TOP)) {
+			cam.orbit(0.0, 1.4, 0.9);
+		} else {
+			// Just outside the cube, facing away from the model
+			cam.orbit(0.0, 0.0, 0.9);
+			cam.yaw = Math.PI;
+		}
+	}
+}
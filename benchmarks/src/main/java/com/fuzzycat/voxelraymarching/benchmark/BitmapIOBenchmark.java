@@ -0,0 +1,162 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import com.fuzzycat.voxelraymarching.util.CommandLine;
+import com.fuzzycat.voxelraymarching.util.Timings;
+import com.fuzzycat.voxelraymarching.voxel.ChunkedBitmapFile;
+import com.fuzzycat.voxelraymarching.voxel.VoxelFile;
+
+/* Compares VoxelFile.loadBitmap() and saveBitmap() with the stream based codec they replaced, kept below as the baseline,
+ * and with the chunked format of ChunkedBitmapFile, on the shipped models. Each run checks that all codecs load the same
+ * bitmap and that both legacy format codecs save the same bytes. The "planes" row loads only the middle eighth of the z
+ * planes of the chunked file with ChunkedBitmapFile.load(), after checking it matches those planes of the bitmap:
+ *   java -cp benchmarks/target/benchmarks.jar com.fuzzycat.voxelraymarching.benchmark.BitmapIOBenchmark
+ *        --models skull,horse,teacup */
+public class BitmapIOBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		String[] models = CommandLine.option(args, "models", "skull,horse,teacup").split(",");
+		int warmup = Integer.parseInt(CommandLine.option(args, "warmup", "3"));
+		int iterations = Integer.parseInt(CommandLine.option(args, "iterations", "10"));
+		int s = 330;
+
+		System.out.println("model    codec      load ms   load MB/s   save ms   save MB/s");
+		for (String model : models) {
+			String file = model + "_330x.bin";
+			double megabytes = new File(file).length() / (1024.0 * 1024.0);
+			File legacyOut = File.createTempFile(model + "_legacy", ".bin");
+			File nioOut = File.createTempFile(model + "_nio", ".bin");
+			File chunkedOut = File.createTempFile(model + "_chunked", ".vxc");
+			legacyOut.deleteOnExit();
+			nioOut.deleteOnExit();
+			chunkedOut.deleteOnExit();
+
+			int[] bitmap = VoxelFile.loadBitmap(file, s, s, s);
+			if (!Arrays.equals(bitmap, legacyLoadBitmap(file, s, s, s)))
+				throw new IllegalStateException("Loaded bitmaps differ for " + file);
+			VoxelFile.saveBitmap(nioOut.getPath(), bitmap);
+			legacySaveBitmap(legacyOut.getPath(), bitmap);
+			if (!Arrays.equals(Files.readAllBytes(nioOut.toPath()), Files.readAllBytes(legacyOut.toPath())))
+				throw new IllegalStateException("Saved files differ for " + file);
+			ChunkedBitmapFile.save(chunkedOut.getPath(), bitmap, s, s, s);
+			if (!Arrays.equals(bitmap, VoxelFile.loadBitmap(chunkedOut.getPath(), s, s, s)))
+				throw new IllegalStateException("Chunked bitmap differs for " + file);
+			int zStart = s * 7 / 16;
+			int zEnd = s * 9 / 16;
+			if (!Arrays.equals(planes(bitmap, s, zStart, zEnd), ChunkedBitmapFile.load(chunkedOut.getPath(), s, s, s, zStart, zEnd)))
+				throw new IllegalStateException("Chunked planes " + zStart + " to " + zEnd + " differ for " + file);
+
+			long[] legacyLoad = Benchmark.measure(() -> legacyLoadBitmap(file, s, s, s), warmup, iterations);
+			long[] legacySave = Benchmark.measure(() -> legacySaveBitmap(legacyOut.getPath(), bitmap), warmup, iterations);
+			long[] nioLoad = Benchmark.measure(() -> VoxelFile.loadBitmap(file, s, s, s), warmup, iterations);
+			long[] nioSave = Benchmark.measure(() -> VoxelFile.saveBitmap(nioOut.getPath(), bitmap), warmup, iterations);
+			report(model, "legacy", megabytes, legacyLoad, legacySave);
+			report(model, "nio", megabytes, nioLoad, nioSave);
+			long[] chunkedLoad = Benchmark.measure(() -> VoxelFile.loadBitmap(chunkedOut.getPath(), s, s, s), warmup, iterations);
+			long[] chunkedSave = Benchmark.measure(() -> ChunkedBitmapFile.save(chunkedOut.getPath(), bitmap, s, s, s), warmup, iterations);
+			report(model, "chunked", megabytes, chunkedLoad, chunkedSave);
+			long[] planesLoad = Benchmark.measure(() -> ChunkedBitmapFile.load(chunkedOut.getPath(), s, s, s, zStart, zEnd),
+					warmup, iterations);
+			System.out.println(String.format("%-7s  %-7s  %8.2f", model, "planes", Timings.mean(planesLoad) / 1.0e6));
+
+			legacyOut.delete();
+			nioOut.delete();
+			chunkedOut.delete();
+		}
+	}
+
+	private static void report(String model, String codec, double megabytes, long[] load, long[] save) {
+		double loadMs = Timings.mean(load) / 1.0e6;
+		double saveMs = Timings.mean(save) / 1.0e6;
+		System.out.println(String.format("%-7s  %-7s  %8.2f  %10.1f  %8.2f  %10.1f",
+				model, codec, loadMs, megabytes / (loadMs / 1.0e3), saveMs, megabytes / (saveMs / 1.0e3)));
+	}
+
+	/* Copy of cube bitmap 'map' of width 's' with the voxels outside z planes [zStart, zEnd) cleared. */
+	private static int[] planes(int[] map, int s, int zStart, int zEnd) {
+		int[] planes = new int[map.length];
+		for (int z = zStart; z < zEnd; z++) {
+			for (int y = 0; y < s; y++) {
+				for (int x = 0; x < s; x++) {
+					VoxelFile.setVoxelAt(planes, s, s, s, x, y, z, VoxelFile.getVoxelAt(map, s, s, s, x, y, z));
+				}
+			}
+		}
+		return planes;
+	}
+
+	/* VoxelFile.saveBitmap() before the NIO codec. */
+	private static void legacySaveBitmap(String outputFilename, int[] map) {
+		try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(new File(outputFilename)))) {
+			int intIndex = 0;
+			int bitIndex = 0;
+			int value = 0;
+			while (true) {
+				int num = 0;
+				boolean done = false;
+				while (((map[intIndex] >> bitIndex) & 1) == value) {
+					num++;
+					bitIndex++;
+					if (bitIndex == 32) {
+						bitIndex = 0;
+						intIndex++;
+						if (intIndex == map.length) {
+							done = true;
+							break;
+						}
+					}
+				}
+				dos.writeInt(num);
+				if (done)
+					break;
+				value = value == 0 ? 1 : 0;
+			}
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/* VoxelFile.loadBitmap() before the NIO codec. */
+	private static int[] legacyLoadBitmap(String inputFilename, int width, int height, int depth) {
+		int[] map = new int[(width * height * depth + 31) / 32];
+		try (DataInputStream dis = new DataInputStream(new FileInputStream(new File(inputFilename)))) {
+			int intIndex = 0;
+			int bitIndex = 0;
+			int value = 0;
+			while (true) {
+				int num = 0;
+				try {
+					num = dis.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				for (int i = 0; i < num; i++) {
+					map[intIndex] = map[intIndex] | (value << bitIndex);
+					bitIndex++;
+					if (bitIndex == 32) {
+						bitIndex = 0;
+						intIndex++;
+					}
+				}
+				value = value == 0 ? 1 : 0;
+			}
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return map;
+	}
+}
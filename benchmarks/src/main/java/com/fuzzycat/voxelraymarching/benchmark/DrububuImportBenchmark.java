@@ -0,0 +1,112 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import com.fuzzycat.voxelraymarching.util.CommandLine;
+import com.fuzzycat.voxelraymarching.util.Timings;
+import com.fuzzycat.voxelraymarching.voxel.DrububuImporter;
+import com.fuzzycat.voxelraymarching.voxel.VoxelFile;
+
+/* Compares DrububuImporter with the line by line loader it replaced, kept below as the baseline. The shipped models are
+ * written out as voxelizer text exports, one "x, y, z" line per solid voxel, and loaded back with each --threads worker
+ * count, checking every result against the model:
+ *   java -Xmx4g -cp benchmarks/target/benchmarks.jar com.fuzzycat.voxelraymarching.benchmark.DrububuImportBenchmark
+ *        --models skull --threads 1,4,12 */
+public class DrububuImportBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		String[] models = CommandLine.option(args, "models", "skull,horse,teacup").split(",");
+		int[] threadCounts = CommandLine.intList(CommandLine.option(args, "threads", "1," + Runtime.getRuntime().availableProcessors()));
+		int warmup = Integer.parseInt(CommandLine.option(args, "warmup", "2"));
+		int iterations = Integer.parseInt(CommandLine.option(args, "iterations", "5"));
+		int s = 330;
+
+		System.out.println("model    lines      loader      mean ms   MB/s     MB allocated");
+		for (String model : models) {
+			int[] bitmap = VoxelFile.loadBitmap(model + "_330x.bin", s, s, s);
+			File text = File.createTempFile(model, ".txt");
+			text.deleteOnExit();
+			long lines = writeText(text, bitmap, s);
+			String file = text.getPath();
+			double megabytes = text.length() / (1024.0 * 1024.0);
+
+			if (!Arrays.equals(bitmap, legacyLoadDrububuTextAsBitmap(file, s, s, s)))
+				throw new IllegalStateException("Legacy loader differs for " + model);
+			report(model, lines, "legacy", megabytes, () -> legacyLoadDrububuTextAsBitmap(file, s, s, s), warmup, iterations);
+			for (int threads : threadCounts) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				if (!Arrays.equals(bitmap, DrububuImporter.load(file, s, s, s, pool)))
+					throw new IllegalStateException("Importer differs for " + model);
+				report(model, lines, "mapped/" + threads, megabytes, () -> DrububuImporter.load(file, s, s, s, pool), warmup, iterations);
+				pool.shutdown();
+			}
+			text.delete();
+		}
+	}
+
+	private static void report(String model, long lines, String loader, double megabytes, Runnable task, int warmup, int iterations) {
+		Map<Long, Long> allocatedBefore = Benchmark.allocatedBytes();
+		long[] samples = Benchmark.measure(task, warmup, iterations);
+		long allocated = Benchmark.allocatedSince(allocatedBefore) / (warmup + iterations);
+		double ms = Timings.mean(samples) / 1.0e6;
+		System.out.println(String.format("%-7s  %9d  %-10s  %8.1f  %7.1f  %12.1f",
+				model, lines, loader, ms, megabytes / (ms / 1.0e3), allocated / (1024.0 * 1024.0)));
+	}
+
+	/* Writes one line per set voxel, in the x fastest order of the voxelizer, and returns the number of lines. */
+	private static long writeText(File file, int[] bitmap, int s) throws IOException {
+		long lines = 0;
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+			for (int z = 0; z < s; z++) {
+				for (int y = 0; y < s; y++) {
+					for (int x = 0; x < s; x++) {
+						if (VoxelFile.getVoxelAt(bitmap, s, s, s, x, y, z) == 1) {
+							writer.write(x + ", " + y + ", " + z + "\n");
+							lines++;
+						}
+					}
+				}
+			}
+		}
+		return lines;
+	}
+
+	/* VoxelFile.loadDrububuTextAsBitmap() before DrububuImporter. */
+	private static int[] legacyLoadDrububuTextAsBitmap(String filename, int width, int height, int depth) {
+		int[] map = new int[(width * height * depth + 31) / 32];
+		try (BufferedReader br = new BufferedReader(new FileReader(new File(filename)))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] coordinateStr = line.split(", ");
+				if (coordinateStr.length < 3)
+					continue;
+				int x = 0, y = 0, z = 0;
+				try {
+					x = Integer.parseInt(coordinateStr[0]);
+					y = Integer.parseInt(coordinateStr[1]);
+					z = Integer.parseInt(coordinateStr[2]);
+				} catch (NumberFormatException e) {
+					continue;
+				}
+				if (x < 0 || y < 0 || z < 0 ||
+					x >= width || y >= height || z >= depth)
+					continue;
+				VoxelFile.setVoxelAt(map, width, height, depth, x, y, z, 1);
+			}
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return map;
+	}
+}
@@ -0,0 +1,124 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import com.fuzzycat.voxelraymarching.graphics.Camera;
+import com.fuzzycat.voxelraymarching.graphics.DynamicResolution;
+import com.fuzzycat.voxelraymarching.graphics.FrameBuffer;
+import com.fuzzycat.voxelraymarching.graphics.Render;
+import com.fuzzycat.voxelraymarching.graphics.RenderContext;
+import com.fuzzycat.voxelraymarching.graphics.Scene;
+import com.fuzzycat.voxelraymarching.graphics.TemporalReprojection;
+import com.fuzzycat.voxelraymarching.util.CommandLine;
+import com.fuzzycat.voxelraymarching.util.Timings;
+
+/* Renders a camera orbit that swings from a distant view into a close-up and back twice per turn, so the cost of a frame
+ * varies several times over, and reports the frame time distribution. Each --target-ms value is one run, 0 renders at
+ * full resolution and anything else holds that frame time with dynamic resolution, also reporting the scales used:
+ *   java -Xmx4g -cp benchmarks/target/benchmarks.jar com.fuzzycat.voxelraymarching.benchmark.OrbitBenchmark
+ *        --model skull --target-ms 0,40 --threads 4
+ * Runs are repeated for each --reproject value, off or on, always reporting the march steps per pixel. Runs with
+ * temporal reprojection on at full resolution also render every frame again without it, untimed, and count the pixels
+ * that differ:
+ *   java -Xmx4g -cp benchmarks/target/benchmarks.jar com.fuzzycat.voxelraymarching.benchmark.OrbitBenchmark
+ *        --target-ms 0 --reproject off,on */
+public class OrbitBenchmark {
+
+	public static void main(String[] args) {
+		String model = CommandLine.option(args, "model", "skull");
+		int dimension = Integer.parseInt(CommandLine.option(args, "dimension", "330"));
+		String[] resolution = CommandLine.option(args, "resolution", "800x700").split("x");
+		int width = Integer.parseInt(resolution[0]);
+		int height = Integer.parseInt(resolution[1]);
+		int threads = Integer.parseInt(CommandLine.option(args, "threads", "" + Runtime.getRuntime().availableProcessors()));
+		int frames = Integer.parseInt(CommandLine.option(args, "frames", "240"));
+		int warmup = Integer.parseInt(CommandLine.option(args, "warmup", "20"));
+		String[] targets = CommandLine.option(args, "target-ms", "0,40").split(",");
+		String[] reprojectModes = CommandLine.option(args, "reproject", "off").split(",");
+
+		Scene scene = BenchmarkScene.load(model, dimension);
+		FrameBuffer frameBuffer = new FrameBuffer(width, height);
+		RenderContext ctx = scene.createContext(frameBuffer);
+
+		for (String target : targets) {
+			for (String reprojectMode : reprojectModes) {
+				double targetMs = Double.parseDouble(target);
+				boolean reproject = reprojectMode.equals("on");
+				Render render = new Render(width, height, 60.0, threads);
+				if (targetMs > 0.0) {
+					render.setDynamicResolution(new DynamicResolution((long) (targetMs * 1.0e6)));
+				}
+				TemporalReprojection reprojection = new TemporalReprojection(reproject);
+				ctx.reprojection = reprojection;
+				Camera cam = render.getCamera();
+				render.begin();
+
+				// Full march of the same frames to compare the image against
+				Render reference = null;
+				FrameBuffer referenceBuffer = null;
+				RenderContext referenceCtx = null;
+				if (reproject && targetMs <= 0.0) {
+					reference = new Render(width, height, 60.0, threads);
+					referenceBuffer = new FrameBuffer(width, height);
+					referenceCtx = scene.createContext(referenceBuffer);
+					reference.begin();
+				}
+				long differingPixels = 0;
+
+				long[] frameTimes = new long[frames];
+				double scaleSum = 0.0, minScale = 1.0;
+				int overTarget = 0;
+				for (int i = -warmup; i < frames; i++) {
+					if (i == 0) {
+						reprojection.resetStatistics();
+					}
+					setOrbitPose(cam, Math.max(i, 0), frames);
+					double scale = targetMs > 0.0 ? render.getDynamicResolution().getScale() : 1.0;
+					long start = System.nanoTime();
+					render.rayMarchVoxels(ctx);
+					long nanos = System.nanoTime() - start;
+					if (i < 0)
+						continue;
+					frameTimes[i] = nanos;
+					scaleSum += scale;
+					minScale = Math.min(minScale, scale);
+					if (targetMs > 0.0 && nanos > targetMs * 1.0e6)
+						overTarget++;
+					if (reference != null) {
+						setOrbitPose(reference.getCamera(), i, frames);
+						reference.rayMarchVoxels(referenceCtx);
+						for (int p = 0; p < referenceBuffer.pixels.length; p++) {
+							if (referenceBuffer.pixels[p] != frameBuffer.pixels[p])
+								differingPixels++;
+						}
+					}
+				}
+				render.end();
+				if (reference != null) {
+					reference.end();
+				}
+				ctx.reprojection = null;
+
+				System.out.println(String.format("%s %dx%d, %d threads, %s, reprojection %s", model, width, height, threads,
+						targetMs > 0.0 ? "dynamic resolution at " + targetMs + " ms" : "full resolution", reprojectMode));
+				System.out.println("  frame time: " + Timings.distribution(frameTimes));
+				if (targetMs > 0.0) {
+					System.out.println(String.format("  scale mean %.3f, min %.3f, %d of %d frames over target",
+							scaleSum / frames, minScale, overTarget, frames));
+				}
+				long rays = Math.max(1, reprojection.getRays());
+				System.out.println(String.format("  march steps per pixel %.2f, per ray %.2f, rays reprojected %.1f%%, fell back %.1f%%",
+						reprojection.getStepsPerPixel(), reprojection.getSteps() / (double) rays,
+						100.0 * reprojection.getReprojectedRays() / rays, 100.0 * reprojection.getFallbacks() / rays));
+				if (reference != null) {
+					System.out.println(String.format("  pixels differing from a full march %.3f%%",
+							100.0 * differingPixels / ((long) frames * width * height)));
+				}
+			}
+		}
+	}
+
+	/* Frame 'frame' of one turn around the model, the distance swinging between 2.0 and 0.7 twice per turn. */
+	public static void setOrbitPose(Camera cam, int frame, int frames) {
+		double t = (double) frame / frames;
+		cam.orbit(2.0 * Math.PI * t, 0.3, 1.35 + 0.65 * Math.cos(4.0 * Math.PI * t));
+	}
+}
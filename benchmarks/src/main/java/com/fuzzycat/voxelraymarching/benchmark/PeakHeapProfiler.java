@@ -0,0 +1,52 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/* JMH profiler reporting how far the heap grew above its use after a collection during each iteration, as
+ * heap.peak.growth. Meant for single shot benchmarks, where that is the working set of one run plus its garbage:
+ *   -prof com.fuzzycat.voxelraymarching.benchmark.PeakHeapProfiler */
+public class PeakHeapProfiler implements InternalProfiler {
+
+	private long heapBefore;
+
+	@Override
+	public String getDescription() {
+		return "Peak heap growth over the heap use before each iteration";
+	}
+
+	@Override
+	public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+		System.gc();
+		heapBefore = 0;
+		for (MemoryPoolMXBean heapPool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (heapPool.getType() == MemoryType.HEAP) {
+				heapBefore += heapPool.getUsage().getUsed();
+				heapPool.resetPeakUsage();
+			}
+		}
+	}
+
+	@Override
+	public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+			IterationResult result) {
+		long peakHeap = 0;
+		for (MemoryPoolMXBean heapPool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (heapPool.getType() == MemoryType.HEAP) {
+				peakHeap += heapPool.getPeakUsage().getUsed();
+			}
+		}
+		return Collections.singletonList(new ScalarResult("heap.peak.growth", peakHeap - heapBefore, "B", AggregationPolicy.AVG));
+	}
+}
@@ -0,0 +1,201 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fuzzycat.voxelraymarching.voxel.BrickedDistanceField;
+import com.fuzzycat.voxelraymarching.voxel.DistanceField;
+import com.fuzzycat.voxelraymarching.voxel.DistanceFieldGenerator;
+import com.fuzzycat.voxelraymarching.voxel.DoubleDistanceField;
+import com.fuzzycat.voxelraymarching.voxel.NormalField;
+import com.fuzzycat.voxelraymarching.voxel.NormalFieldEncoding;
+import com.fuzzycat.voxelraymarching.voxel.NormalFieldGenerator;
+import com.fuzzycat.voxelraymarching.voxel.VoxelFile;
+import com.fuzzycat.voxelraymarching.voxel.VoxelLayout;
+
+/* JMH benchmark of each stage of the voxel preprocessing pipeline, and of the whole pipeline end to end. Every run of a
+ * stage is timed on its own, as it happens once at startup. Volumes are either shipped models (skull, horse, teacup at
+ * 330) or synthetic spheres of a given size. The signed distance field is generated per "threads" worker count, in
+ * place, where each run also copies the map it overwrites, and straight from the bitmap. SPARSE_BRICKS is built through
+ * the whole field (sparseBricks) and one layer of bricks at a time (sparseBricksFromBitmap). Normals are generated for
+ * every cell on one thread (normalField), then for the surface cells only per worker count. Bytes allocated per run are
+ * the gc.alloc.rate.norm result of "-prof gc", peak heap growth the heap.peak.growth result of PeakHeapProfiler:
+ *   java -Xmx8g -jar benchmarks/target/benchmarks.jar PreprocessBenchmark -p volume=skull,64,128,256 -p threads=1,4,12
+ *        -prof gc -prof com.fuzzycat.voxelraymarching.benchmark.PeakHeapProfiler
+ * Stages that only read the bitmap also run on volumes too large for a dense field, such as
+ *   java -jar benchmarks/target/benchmarks.jar PreprocessBenchmark.sparseBricksFromBitmap -p volume=1024 -p threads=1
+ *        -prof com.fuzzycat.voxelraymarching.benchmark.PeakHeapProfiler */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class PreprocessBenchmark {
+
+	@Param({ "skull", "horse", "teacup", "64", "128", "256", "512" })
+	public String volume;
+	@Param({ "7" })
+	public int delta;
+
+	private int s;
+	private String file;
+	private File temp;
+	private int[] voxelMap;
+
+	/* Worker pool of the parallel stages, only those are run once per "threads" value. */
+	@State(Scope.Benchmark)
+	public static class Workers {
+		@Param({ "1", "4" })
+		public int threads;
+
+		private ForkJoinPool pool;
+
+		@Setup(Level.Trial)
+		public void begin() {
+			pool = new ForkJoinPool(threads);
+		}
+
+		@TearDown(Level.Trial)
+		public void end() {
+			pool.shutdown();
+		}
+	}
+
+	/* The map and signed distance field of the volume, only built for the stages that read them, so the others also run
+	 * on volumes whose dense fields do not fit in the heap. */
+	@State(Scope.Benchmark)
+	public static class DenseFields {
+		private double[] map, sdf;
+
+		@Setup(Level.Trial)
+		public void build(PreprocessBenchmark benchmark) {
+			int s = benchmark.s;
+			map = VoxelFile.createDistanceMapFromBitmap(benchmark.voxelMap, s, s, s);
+			sdf = DistanceFieldGenerator.createSignedDistanceFieldFromMap(map, s, s);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void loadVolume() throws IOException {
+		if (Character.isDigit(volume.charAt(0))) {
+			s = Integer.parseInt(volume);
+			temp = File.createTempFile("sphere_" + s, ".bin");
+			temp.deleteOnExit();
+			file = temp.getPath();
+			VoxelFile.saveBitmap(file, createSphereBitmap(s));
+		} else {
+			s = 330;
+			file = volume + "_330x.bin";
+		}
+		voxelMap = VoxelFile.loadBitmap(file, s, s, s);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteVolume() {
+		if (temp != null) {
+			temp.delete();
+		}
+	}
+
+	@Benchmark
+	public int[] loadBitmap() {
+		return VoxelFile.loadBitmap(file, s, s, s);
+	}
+
+	@Benchmark
+	public int[] fillHollowsBitmap() {
+		int[] filled = voxelMap.clone();
+		VoxelFile.fillHollowsBitmap(filled, s, s, s);
+		return filled;
+	}
+
+	@Benchmark
+	public double[] createDistanceMap() {
+		return VoxelFile.createDistanceMapFromBitmap(voxelMap, s, s, s);
+	}
+
+	@Benchmark
+	public double[] signedDistanceField(Workers workers, DenseFields fields) {
+		return DistanceFieldGenerator.createSignedDistanceFieldFromMap(fields.map, s, s, workers.pool);
+	}
+
+	@Benchmark
+	public double[] signedDistanceFieldInPlace(DenseFields fields) {
+		return DistanceFieldGenerator.createSignedDistanceFieldInPlace(fields.map.clone(), s, s);
+	}
+
+	@Benchmark
+	public double[] signedDistanceFieldFromBitmap() {
+		return DistanceFieldGenerator.createSignedDistanceFieldFromBitmap(voxelMap, s, s, s);
+	}
+
+	@Benchmark
+	public DistanceField sparseBricks(Workers workers) {
+		double[] distanceField = DistanceFieldGenerator.createSignedDistanceFieldFromBitmap(voxelMap, s, s, s, workers.pool);
+		return BrickedDistanceField.fromField(new DoubleDistanceField(distanceField, s));
+	}
+
+	@Benchmark
+	public DistanceField sparseBricksFromBitmap(Workers workers) {
+		return BrickedDistanceField.fromBitmap(voxelMap, s, workers.pool);
+	}
+
+	@Benchmark
+	public double[] normalField(DenseFields fields) {
+		return NormalFieldGenerator.createNormalFieldFromSignedDistanceField(fields.sdf, s, s, delta);
+	}
+
+	@Benchmark
+	public NormalField normalFieldSurface(Workers workers, DenseFields fields) {
+		return NormalFieldGenerator.createNormalField(fields.sdf, s, s, delta, NormalFieldEncoding.DOUBLE, VoxelLayout.LINEAR, workers.pool);
+	}
+
+	@Benchmark
+	public NormalField octahedralSurface(Workers workers, DenseFields fields) {
+		return NormalFieldGenerator.createNormalField(fields.sdf, s, s, delta, NormalFieldEncoding.OCTAHEDRAL, VoxelLayout.LINEAR, workers.pool);
+	}
+
+	@Benchmark
+	public NormalField endToEnd() {
+		int[] bitmap = VoxelFile.loadBitmap(file, s, s, s);
+		double[] distanceField = DistanceFieldGenerator.createSignedDistanceFieldFromBitmap(bitmap, s, s, s);
+		return NormalFieldGenerator.createNormalField(distanceField, s, s, delta, NormalFieldEncoding.DOUBLE);
+	}
+
+	/* A solid sphere filling most of a cube of width 's', with a hollow core so fillHollowsBitmap() has work to do. */
+	public static int[] createSphereBitmap(int s) {
+		int[] map = new int[(s * s * s + 31) / 32];
+		double c = 0.5 * (s - 1);
+		double outer = 0.4 * s;
+		double inner = 0.15 * s;
+		for (int z = 0; z < s; z++) {
+			for (int y = 0; y < s; y++) {
+				for (int x = 0; x < s; x++) {
+					double dx = x - c, dy = y - c, dz = z - c;
+					double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+					if (r <= outer && r >= inner) {
+						VoxelFile.setVoxelAt(map, s, s, s, x, y, z, 1);
+					}
+				}
+			}
+		}
+		return map;
+	}
+}
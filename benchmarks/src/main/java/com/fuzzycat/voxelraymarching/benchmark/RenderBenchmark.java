@@ -0,0 +1,102 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fuzzycat.voxelraymarching.graphics.FrameScheduler;
+import com.fuzzycat.voxelraymarching.graphics.Render;
+import com.fuzzycat.voxelraymarching.graphics.RowScheduler;
+import com.fuzzycat.voxelraymarching.graphics.TileScheduler;
+import com.fuzzycat.voxelraymarching.voxel.OnDemandNormalField;
+
+/* JMH benchmark of Render.rayMarchVoxels() across thread counts and frame schedulers ("tiles" for TileScheduler with
+ * "tile" as the tile size, "rows" for RowScheduler), on top of the RenderScene parameters. frame() reports ns/frame,
+ * rays() frames/s with rays/s as its "rays" secondary result. At the end of each trial the load balance (slowest worker
+ * over the average worker) and synchronization overhead per frame are printed, e.g.:
+ *   java -jar benchmarks/target/benchmarks.jar RenderBenchmark -p resolution=400x350,800x700 -p threads=1,4,12
+ *   java -jar benchmarks/target/benchmarks.jar RenderBenchmark.frame -p layout=LINEAR,TILED -p pose=front,side,top
+ *        -p threads=1
+ *   java -jar benchmarks/target/benchmarks.jar RenderBenchmark.frame -p packet=1,4,8,16 -p scheduler=tiles -p threads=1
+ *   java -jar benchmarks/target/benchmarks.jar RenderBenchmark.frame -p packet=8,16 -p vector=false,true -p threads=1
+ * Cache misses are not visible from Java; compare encodings with "-prof perfnorm" where perf is available. */
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "--add-modules", "jdk.incubator.vector" })
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+public class RenderBenchmark extends RenderScene {
+
+	@Param({ "1", "4" })
+	public int threads;
+	@Param({ "tiles", "rows" })
+	public String scheduler;
+	@Param({ "" + TileScheduler.DEFAULT_TILE_SIZE })
+	public int tile;
+
+	private FrameScheduler frameScheduler;
+	private Render render;
+	private long frames;
+	private double imbalance, dispatchNanos, joinNanos;
+
+	@Override
+	protected void begin() {
+		frameScheduler = scheduler.equals("rows") ? new RowScheduler(threads) : new TileScheduler(null, threads, tile);
+		render = new Render(width, height, 60.0, frameScheduler);
+		BenchmarkScene.setPose(render.getCamera(), pose);
+		render.begin();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int[] frame() {
+		return renderFrame();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int[] rays(Rays counter) {
+		counter.rays += width * height;
+		return renderFrame();
+	}
+
+	private int[] renderFrame() {
+		render.rayMarchVoxels(ctx);
+		frames++;
+		imbalance += imbalance(frameScheduler.getWorkerNanos());
+		dispatchNanos += frameScheduler.getDispatchNanos();
+		joinNanos += frameScheduler.getJoinNanos();
+		return ctx.screenPixels;
+	}
+
+	@TearDown(Level.Trial)
+	public void end() {
+		render.end();
+		System.out.println(String.format("load balance (max/mean worker time) %.3f, dispatch %.1f us, join %.1f us",
+				imbalance / frames, dispatchNanos / frames / 1.0e3, joinNanos / frames / 1.0e3));
+		if (scene.model.normals instanceof OnDemandNormalField) {
+			OnDemandNormalField normals = (OnDemandNormalField) scene.model.normals;
+			System.out.println(String.format("normal cache hit rate %.4f, %.1f MB cached",
+					normals.getHitRate(), normals.getSizeBytes() / (1024.0 * 1024.0)));
+		}
+	}
+
+	private static double imbalance(long[] workerNanos) {
+		long max = 0;
+		double sum = 0.0;
+		for (long nanos : workerNanos) {
+			max = Math.max(max, nanos);
+			sum += nanos;
+		}
+		return sum == 0.0 ? 1.0 : max / (sum / workerNanos.length);
+	}
+}
@@ -0,0 +1,86 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fuzzycat.voxelraymarching.graphics.FrameBuffer;
+import com.fuzzycat.voxelraymarching.graphics.RenderContext;
+import com.fuzzycat.voxelraymarching.graphics.Scene;
+import com.fuzzycat.voxelraymarching.voxel.DistanceField;
+import com.fuzzycat.voxelraymarching.voxel.DistanceFieldEncoding;
+import com.fuzzycat.voxelraymarching.voxel.DistanceFieldGenerator;
+import com.fuzzycat.voxelraymarching.voxel.NormalFieldEncoding;
+import com.fuzzycat.voxelraymarching.voxel.VoxelLayout;
+import com.fuzzycat.voxelraymarching.voxel.VoxelModel;
+
+/* JMH state shared by the render benchmarks: the model, distance field encoding (DOUBLE, FLOAT, FIXED_16, FIXED_8,
+ * SPARSE_BRICKS), normal encoding (DOUBLE, OCTAHEDRAL, ON_DEMAND), cell layout (LINEAR, TILED), ray packet width (1
+ * marches one ray at a time), packets on the experimental Vector API march or not (see RenderContext.vectorPackets,
+ * DOUBLE and LINEAR only), resolution and camera pose of one trial. Every "-p" combination is loaded once per fork. */
+@State(Scope.Benchmark)
+public abstract class RenderScene {
+
+	@Param({ "skull" })
+	public String model;
+	@Param({ "330" })
+	public int dimension;
+	@Param({ "DOUBLE" })
+	public String encoding;
+	@Param({ "DOUBLE" })
+	public String normals;
+	@Param({ "LINEAR" })
+	public String layout;
+	@Param({ "1" })
+	public int packet;
+	@Param({ "false" })
+	public boolean vector;
+	@Param({ "400x350", "800x700", "1600x1400" })
+	public String resolution;
+	@Param({ BenchmarkScene.CLOSE_UP, BenchmarkScene.FAR, BenchmarkScene.SKY })
+	public String pose;
+
+	protected int width, height;
+	protected Scene scene;
+	protected RenderContext ctx;
+
+	/* Rays traced per second, reported next to the frames per second of a throughput run. */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Rays {
+		public long rays;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			rays = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void loadScene() {
+		String[] wh = resolution.split("x");
+		width = Integer.parseInt(wh[0]);
+		height = Integer.parseInt(wh[1]);
+
+		VoxelModel.Options options = new VoxelModel.Options();
+		options.normalEncoding = NormalFieldEncoding.valueOf(normals);
+		options.layout = VoxelLayout.valueOf(layout);
+		Scene loaded = BenchmarkScene.load(model, dimension, options);
+		DistanceField sdf = DistanceFieldGenerator.encode(loaded.model.sdf, DistanceFieldEncoding.valueOf(encoding), options.layout);
+		scene = new Scene(new VoxelModel(dimension, sdf, loaded.model.normals), loaded.photoSphere, loaded.material);
+		System.out.println(String.format("Distance field %s, %.1f MB, normal field %s, %.1f MB", encoding,
+				sdf.getSizeBytes() / (1024.0 * 1024.0), normals, scene.model.normals.getSizeBytes() / (1024.0 * 1024.0)));
+
+		ctx = scene.createContext(new FrameBuffer(width, height));
+		ctx.packetWidth = packet;
+		ctx.vectorPackets = vector;
+		begin();
+	}
+
+	/* Sets up the benchmark's renderer once the scene is loaded. JMH does not order the @Setup methods of a state class
+	 * and its superclass, so this is called from loadScene() instead. */
+	protected abstract void begin();
+}
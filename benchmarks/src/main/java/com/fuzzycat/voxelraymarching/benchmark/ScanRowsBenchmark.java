@@ -0,0 +1,52 @@
+package com.fuzzycat.voxelraymarching.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fuzzycat.voxelraymarching.graphics.Camera;
+import com.fuzzycat.voxelraymarching.graphics.Render;
+import com.fuzzycat.voxelraymarching.graphics.RenderThread;
+
+/* JMH benchmark of the single-threaded row scan, RenderThread.renderRows() over the whole frame on the benchmark thread
+ * with no thread handoff, on the RenderScene parameters. frame() reports ns/frame, rays() frames/s with rays/s as its
+ * "rays" secondary result:
+ *   java -jar benchmarks/target/benchmarks.jar ScanRowsBenchmark -p resolution=800x700 -p encoding=DOUBLE,FIXED_16 */
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "--add-modules", "jdk.incubator.vector" })
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+public class ScanRowsBenchmark extends RenderScene {
+
+	private Camera cam;
+	private RenderThread scanner;
+
+	@Override
+	protected void begin() {
+		cam = new Render(width, height, 60.0, 1).getCamera();
+		BenchmarkScene.setPose(cam, pose);
+		scanner = new RenderThread();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int[] frame() {
+		scanner.renderRows(ctx, cam, 0, 1);
+		return ctx.screenPixels;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int[] rays(Rays counter) {
+		scanner.renderRows(ctx, cam, 0, 1);
+		counter.rays += width * height;
+		return ctx.screenPixels;
+	}
+}
@@ -0,0 +1,42 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+public class Camera {
+	public int width;
+	public int height;
+	public double fov;
+	public Vector3 position;
+	public double yaw;
+	public double pitch;
+	
+	/* Places the camera 'distance' away from the center of the voxel cube, looking at it from the given angles. */
+	public void orbit(double yaw, double pitch, double distance) {
+		this.yaw = yaw;
+		this.pitch = pitch;
+		position.set(0.0, 0.0, distance);
+		position.rotateYZ(pitch);
+		position.rotateZX(yaw);
+		position.x += 0.5;
+		position.y += 0.5;
+		position.z += 0.5;
+	}
+	
+	/* Sets the world space directions of the camera's x, y and z axes at its yaw and pitch. The camera looks down -z. */
+	public void axes(Vector3 right, Vector3 up, Vector3 forward) {
+		double cosYaw = Math.cos(yaw);
+		double sinYaw = Math.sin(yaw);
+		double cosPitch = Math.cos(pitch);
+		double sinPitch = Math.sin(pitch);
+		right.set(1.0, 0.0, 0.0);
+		up.set(0.0, 1.0, 0.0);
+		forward.set(0.0, 0.0, 1.0);
+		for (Vector3 axis : new Vector3[] { right, up, forward }) {
+			axis.rotateYZ(cosPitch, sinPitch);
+			axis.rotateZX(cosYaw, sinYaw);
+		}
+	}
+	
+	/* Camera space z of the plane the pixel centers lie on one unit apart, far enough for the horizontal field of view. */
+	public double imagePlaneZ() {
+		return -0.5 * width / Math.tan(Math.toRadians(0.5 * fov));
+	}
+}
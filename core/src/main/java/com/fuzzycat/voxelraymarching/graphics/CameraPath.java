@@ -0,0 +1,71 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/* A sequence of camera poses, one per frame, so that a flythrough can be recorded once and replayed identically later.
+ * Stored as a text file with one "x y z yaw pitch zoom" line per frame. */
+public class CameraPath {
+	private ArrayList<double[]> poses;
+
+	public CameraPath() {
+		poses = new ArrayList<double[]>();
+	}
+
+	public void record(Camera cam, int zoom) {
+		poses.add(new double[] { cam.position.x, cam.position.y, cam.position.z, cam.yaw, cam.pitch, zoom });
+	}
+
+	/* Sets the camera to the pose recorded at 'frame'. */
+	public void apply(int frame, Camera cam) {
+		double[] pose = poses.get(frame);
+		cam.position.set(pose[0], pose[1], pose[2]);
+		cam.yaw = pose[3];
+		cam.pitch = pose[4];
+	}
+
+	public int getZoom(int frame) {
+		return (int) poses.get(frame)[5];
+	}
+
+	public int size() {
+		return poses.size();
+	}
+
+	public void save(String filename) {
+		try (PrintWriter pw = new PrintWriter(new File(filename))) {
+			for (double[] pose : poses) {
+				pw.println(pose[0] + " " + pose[1] + " " + pose[2] + " " + pose[3] + " " + pose[4] + " " + (int) pose[5]);
+			}
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public static CameraPath load(String filename) {
+		CameraPath path = new CameraPath();
+		try (BufferedReader br = new BufferedReader(new FileReader(new File(filename)))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] values = line.trim().split("\\s+");
+				if (values.length < 5)
+					continue;
+				double[] pose = new double[6];
+				for (int i = 0; i < values.length && i < 6; i++) {
+					pose[i] = Double.parseDouble(values[i]);
+				}
+				path.poses.add(pose);
+			}
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return path;
+	}
+}
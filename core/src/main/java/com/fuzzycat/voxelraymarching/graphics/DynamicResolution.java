@@ -0,0 +1,71 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+/* Picks the fraction of the output width and height Render draws each frame, so that frames take about a target time
+ * however expensive the view is. Frame time is modelled as a cost per unit of output area times the area drawn, the
+ * cost being learned from the measured frame times: a slower frame is believed at once, a rising cost is assumed to
+ * rise as much again by the next frame and the scale drops in the same frame, faster frames are averaged in and the
+ * scale grows back a little each frame. */
+public class DynamicResolution {
+	public static final double DEFAULT_MIN_SCALE = 0.25;
+	/* Scales are multiples of this, so the image is not resized by every small change in frame time. */
+	private static final double SCALE_STEP = 1.0 / 64.0;
+	/* Weight of the newest frame in the cost when it is cheaper than the average. */
+	private static final double SMOOTHING = 0.25;
+	/* Fraction of the way to the ideal scale grown per frame. */
+	private static final double GROW_RATE = 0.2;
+	/* Predicted frame times within this fraction of the target keep the current scale. */
+	private static final double TOLERANCE = 0.1;
+
+	private final long targetNanos;
+	private final double minScale;
+	private final double maxScale;
+	private double scale;
+	private double nanosPerArea;
+	private double lastCost;
+
+	public DynamicResolution(long targetNanos) {
+		this(targetNanos, DEFAULT_MIN_SCALE, 1.0);
+	}
+
+	public DynamicResolution(long targetNanos, double minScale, double maxScale) {
+		this.targetNanos = targetNanos;
+		this.minScale = minScale;
+		this.maxScale = maxScale;
+		scale = maxScale;
+	}
+
+	/* Fraction of the output width and height to draw the next frame at. */
+	public double getScale() {
+		return scale;
+	}
+
+	public long getTargetNanos() {
+		return targetNanos;
+	}
+
+	/* Feeds back how long the last frame, drawn at getScale(), took. */
+	public void update(long frameNanos) {
+		double area = scale * scale;
+		double cost = frameNanos / area;
+		double rising = lastCost == 0.0 ? 0.0 : Math.max(0.0, cost - lastCost);
+		lastCost = cost;
+		if (nanosPerArea == 0.0 || cost > nanosPerArea) {
+			// Assume a cost still rising keeps rising as fast for one more frame
+			nanosPerArea = cost + rising;
+		} else {
+			nanosPerArea += SMOOTHING * (cost - nanosPerArea);
+		}
+
+		if (Math.abs(nanosPerArea * area - targetNanos) < TOLERANCE * targetNanos)
+			return;
+		double ideal = Math.sqrt(targetNanos / nanosPerArea);
+		double next;
+		if (ideal < scale) {
+			next = Math.floor(ideal / SCALE_STEP) * SCALE_STEP;
+		} else {
+			next = Math.min(ideal, scale + Math.max(SCALE_STEP, GROW_RATE * (ideal - scale)));
+			next = Math.round(next / SCALE_STEP) * SCALE_STEP;
+		}
+		scale = Math.max(minScale, Math.min(maxScale, next));
+	}
+}
@@ -0,0 +1,20 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+/* Packed 0xRRGGBB pixels, rows from top to bottom. The array can be shared with whatever displays or encodes the frame. */
+public class FrameBuffer {
+	public final int width;
+	public final int height;
+	public final int[] pixels;
+	
+	public FrameBuffer(int width, int height) {
+		this(width, height, new int[width * height]);
+	}
+	
+	public FrameBuffer(int width, int height, int[] pixels) {
+		if (pixels.length < width * height)
+			throw new IllegalArgumentException("Pixel array too small for " + width + "x" + height);
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+}
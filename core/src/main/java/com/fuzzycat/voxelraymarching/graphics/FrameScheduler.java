@@ -0,0 +1,23 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+/* Splits the pixels of a frame between worker threads. */
+public interface FrameScheduler {
+	/* Starts the workers, called before the first frame. */
+	void begin();
+	
+	/* Renders a whole frame and returns once every pixel is written. */
+	void renderFrame(RenderContext context, Camera camera);
+	
+	/* Stops the workers. */
+	void end();
+	
+	/* Time each worker spent rendering during the last frame, nanoseconds. The spread between these shows how evenly
+	 * the frame was split. */
+	long[] getWorkerNanos();
+	
+	/* Time from the start of the last frame until its last worker began rendering, nanoseconds. */
+	long getDispatchNanos();
+	
+	/* Time from the last worker finishing the last frame until the frame was returned, nanoseconds. */
+	long getJoinNanos();
+}
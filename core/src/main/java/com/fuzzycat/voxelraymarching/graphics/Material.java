@@ -0,0 +1,13 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+public class Material {
+	/* 0 is fully diffuse, 1 is a perfect mirror of the photosphere. */
+	public double diffuseSpecularRatio;
+	/* Packed 0xRRGGBB. */
+	public int diffuseColor;
+	
+	public Material(double diffuseSpecularRatio, int diffuseColor) {
+		this.diffuseSpecularRatio = diffuseSpecularRatio;
+		this.diffuseColor = diffuseColor;
+	}
+}
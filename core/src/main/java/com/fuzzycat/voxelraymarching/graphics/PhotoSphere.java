@@ -0,0 +1,14 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+/* An equirectangular 360 degree environment image, packed 0xRRGGBB pixels, twice as wide as it is high. */
+public class PhotoSphere {
+	public final int[] color;
+	public final int width;
+	public final int height;
+	
+	public PhotoSphere(int[] color, int width, int height) {
+		this.color = color;
+		this.width = width;
+		this.height = height;
+	}
+}
@@ -0,0 +1,523 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fuzzycat.voxelraymarching.util.MathUtil;
+import com.fuzzycat.voxelraymarching.voxel.DistanceField;
+import com.fuzzycat.voxelraymarching.voxel.DoubleDistanceField;
+import com.fuzzycat.voxelraymarching.voxel.VoxelLayout;
+
+/* Marches camera rays through the signed distance field and shades the pixels they hit. Holds the scratch state of one
+ * worker, so every thread rendering a frame uses its own instance. Call begin() once per frame, then render any set of
+ * rows or tiles. */
+public class RayMarcher {
+	/* Whether VectorPacketMarcher can be loaded, the incubating module is only resolved when asked for. */
+	private static final boolean VECTOR_API = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+	/* Set once a context asking for vector packets has been told why it is marched without them. */
+	private static final AtomicBoolean VECTOR_FALLBACK_REPORTED = new AtomicBoolean();
+	
+	private RenderContext ctx;
+	private Camera cam;
+
+	private Vector3 ray = new Vector3();
+	private Vector3 march = new Vector3();
+	private Vector3 normal = new Vector3();
+	private Vector3 reflected = new Vector3();
+	private Vector3 tempVec = new Vector3();
+	private Vector3 lightDir = new Vector3(1.0, -1.0, -1.0);
+	private double[] rayTraceResults = new double[8];
+	private PhotoSphereTrace photoSphereTrace;
+
+	// Ray packet lanes, structure of arrays: march position, ray direction and pixel of each lane
+	private int packetWidth;
+	private double[] laneX, laneY, laneZ;
+	private double[] laneRayX, laneRayY, laneRayZ;
+	private int[] lanePixel;
+	private int[] activeLanes;
+	private int[] hitLanes;
+	// Voxels each lane has marched, and the point past its reprojected start it jumps to once it has marched past
+	// 'laneGapEnd', or -1
+	private double[] laneTravelled, laneSkipTo, laneGapEnd;
+	private int packetDepthIndex;
+	// Marches the packets on the Vector API, with the cells it gathers from, both null when not used
+	private VectorPacketMarcher vectorMarcher;
+	private double[] vectorCells;
+
+	// Temporal reprojection: depth buffer of this frame, depths rays start near, and this worker's march statistics
+	private TemporalReprojection reprojection;
+	private float[] depth;
+	private float[] startDepth;
+	private double startMargin;
+	private long rays, steps, reprojectedRays, fallbacks;
+
+	// Camera axes rotated to this frame's yaw and pitch, and the camera space ray of pixel (0, 0) along them
+	private Vector3 right = new Vector3();
+	private Vector3 up = new Vector3();
+	private Vector3 forward = new Vector3();
+	private double firstRayX, firstRayY, firstRayZ;
+	private Vector3 pixelRay = new Vector3();
+
+	public RayMarcher() {
+		lightDir.normalize();
+	}
+
+	public void begin(RenderContext context, Camera cameraData) {
+		ctx = context;
+		cam = cameraData;
+		photoSphereTrace =
+				new PhotoSphereTrace(ctx.photoSphereColor, 2 * ctx.photoSphereHeight,
+									 ctx.photoSphereHeight, 2 * ctx.photoSphereHeight / MathUtil._2_PI,
+									 ctx.photoSphereHeight / Math.PI);
+		cam.axes(right, up, forward);
+		firstRayX = -0.5 * cam.width + 0.5;
+		firstRayY = -0.5 * cam.height + 0.5;
+		firstRayZ = cam.imagePlaneZ();
+		boolean vector = ctx.vectorPackets && ctx.packetWidth > 1 && VECTOR_API && ctx.sdf instanceof DoubleDistanceField &&
+						 ((DoubleDistanceField) ctx.sdf).getLayout() == VoxelLayout.LINEAR;
+		if (ctx.vectorPackets && !vector) {
+			reportVectorFallback();
+		}
+		if (ctx.packetWidth > 1 && (ctx.packetWidth != packetWidth || vector != (vectorMarcher != null))) {
+			packetWidth = ctx.packetWidth;
+			// The vector march reads and writes whole vectors of lanes
+			int lanes = vector ? VectorPacketMarcher.paddedLength(packetWidth) : packetWidth;
+			laneX = new double[lanes];
+			laneY = new double[lanes];
+			laneZ = new double[lanes];
+			laneRayX = new double[lanes];
+			laneRayY = new double[lanes];
+			laneRayZ = new double[lanes];
+			lanePixel = new int[packetWidth];
+			activeLanes = new int[packetWidth];
+			hitLanes = new int[packetWidth];
+			laneTravelled = new double[lanes];
+			laneSkipTo = new double[lanes];
+			laneGapEnd = new double[lanes];
+			vectorMarcher = vector ? new VectorPacketMarcher(laneX, laneY, laneZ, laneRayX, laneRayY, laneRayZ,
+															 laneTravelled, laneSkipTo, laneGapEnd) : null;
+		}
+		vectorCells = vector ? ((DoubleDistanceField) ctx.sdf).getValues() : null;
+		reprojection = ctx.reprojection;
+		depth = reprojection == null ? null : reprojection.getDepth();
+		startDepth = reprojection == null ? null : reprojection.getStartDepth();
+		startMargin = TemporalReprojection.START_MARGIN / (ctx.voxelsDimension - 1);
+	}
+
+	/* Prints once per run why the packets are not marched on the Vector API, they take the scalar loop instead. */
+	private void reportVectorFallback() {
+		if (VECTOR_FALLBACK_REPORTED.getAndSet(true))
+			return;
+		String reason;
+		if (ctx.packetWidth <= 1) {
+			reason = "rays are not marched in packets";
+		} else if (!VECTOR_API) {
+			reason = "the jdk.incubator.vector module is not loaded, run with --add-modules jdk.incubator.vector";
+		} else {
+			reason = "only a DOUBLE distance field in the LINEAR layout is supported, not " + ctx.sdf.getClass().getSimpleName() +
+					 (ctx.sdf instanceof DoubleDistanceField ? " in the " + ((DoubleDistanceField) ctx.sdf).getLayout() + " layout" : "");
+		}
+		System.err.println("Vector packets are off, " + reason);
+	}
+
+	/* Renders every 'indexStride'-th row starting at row 'index'. */
+	public void renderRows(int index, int indexStride) {
+		for (int y = index; y < cam.height; y += indexStride) {
+			renderSpan(y, 0, cam.width);
+		}
+	}
+
+	/* Renders the rectangle [x0, x1) x [y0, y1), clipped to the image. */
+	public void renderTile(int x0, int y0, int x1, int y1) {
+		if (x1 > cam.width) x1 = cam.width;
+		if (y1 > cam.height) y1 = cam.height;
+		for (int y = y0; y < y1; y++) {
+			renderSpan(y, x0, x1);
+		}
+	}
+
+	/* Renders pixels [x0, x1) of camera row 'y'. Camera rows run bottom to top, screen rows top to bottom. */
+	private void renderSpan(int y, int x0, int x1) {
+		if (ctx.packetWidth > 1) {
+			for (int x = x0; x < x1; x += packetWidth) {
+				renderPacket(y, x, Math.min(x + packetWidth, x1));
+			}
+			flushStatistics();
+			return;
+		}
+		
+		final int cubeSize = ctx.voxelsDimension - 1;
+		final DistanceField sdf = ctx.sdf;
+
+		int pixelIndex = x0 + (cam.height - 1 - y) * cam.width;
+		int depthIndex = x0 + y * cam.width;
+		startRow(x0, y);
+		for (int x = x0; x < x1; x++) {
+			ray.set(pixelRay);
+			ray.normalize();
+			pixelRay.add(right);
+
+			int resultIndex = 0;
+			MathUtil.rayTraceCube(cam.position, ray, rayTraceResults);
+			if (rayTraceResults[4] < rayTraceResults[0]) {
+				resultIndex = 4;
+			}
+			float hitDepth = TemporalReprojection.NO_HIT;
+			if (rayTraceResults[resultIndex] != Double.POSITIVE_INFINITY) {
+				rays++;
+				march.x = rayTraceResults[resultIndex + 1] * cubeSize + 0.5;
+				march.y = rayTraceResults[resultIndex + 2] * cubeSize + 0.5;
+				march.z = rayTraceResults[resultIndex + 3] * cubeSize + 0.5;
+				double travelled = 0.0;
+				double skipTo = -1.0;
+				double gapEnd = 0.0;
+				if (startDepth != null && startDepth[depthIndex] != TemporalReprojection.NO_HIT) {
+					double start = startDistance(startDepth[depthIndex], ray.x, ray.y, ray.z);
+					if (start > rayTraceResults[resultIndex]) {
+						skipTo = (start - rayTraceResults[resultIndex]) * cubeSize;
+						double clearance = clearance(march.x + ray.x * skipTo, march.y + ray.y * skipTo, march.z + ray.z * skipTo);
+						gapEnd = skipTo - clearance;
+						if (clearance <= 0.0) {
+							fallbacks++;
+							skipTo = -1.0;
+						} else {
+							// The distance read at the start is the step a march from there takes first
+							skipTo += clearance + TemporalReprojection.START_CLEARANCE;
+							if (gapEnd <= 0.0) {
+								// Nothing between the cube and the start
+								reprojectedRays++;
+								tempVec.set(ray);
+								tempVec.scale(skipTo);
+								march.add(tempVec);
+								skipTo = -1.0;
+							}
+						}
+					}
+				}
+				while (true) {
+					steps++;
+					int marchX = (int) march.x;
+					int marchY = (int) march.y;
+					int marchZ = (int) march.z;
+					if (marchX < 0 || marchX >= ctx.voxelsDimension ||
+					    marchY < 0 || marchY >= ctx.voxelsDimension ||
+					    marchZ < 0 || marchZ >= ctx.voxelsDimension) {
+						ctx.screenPixels[pixelIndex] = 0;
+						break;
+					}
+
+					double distance = sdf.distance(marchX, marchY, marchZ);
+					if (distance < 1.0) {
+						ctx.screenPixels[pixelIndex] = shade(marchX, marchY, marchZ);
+						hitDepth = hitDepth(march.x, march.y, march.z, cubeSize);
+						break;
+					}
+					if (skipTo >= 0.0 && travelled + distance >= gapEnd) {
+						// This step and the clearance at the start cover the way there, jump unless this step goes further
+						if (skipTo > travelled + distance) {
+							reprojectedRays++;
+							distance = skipTo - travelled;
+						} else {
+							fallbacks++;
+						}
+						skipTo = -1.0;
+					}
+					travelled += distance;
+
+					// March distance given by signed distance field
+					tempVec.set(ray);
+					tempVec.scale(distance);
+					march.add(tempVec);
+				}
+			} else {
+				ctx.screenPixels[pixelIndex] = 0;
+			}
+			if (depth != null) {
+				depth[depthIndex] = hitDepth;
+			}
+
+			pixelIndex++;
+			depthIndex++;
+		}
+		flushStatistics();
+	}
+
+	/* Voxels around voxel space position 'm' with nothing a march could stop at, 0 or less when there is no such room or
+	 * 'm' is outside the field. Reading the distance counts as a march step. */
+	private double clearance(double mx, double my, double mz) {
+		steps++;
+		int x = (int) mx;
+		int y = (int) my;
+		int z = (int) mz;
+		int dimension = ctx.voxelsDimension;
+		if (x < 0 || x >= dimension || y < 0 || y >= dimension || z < 0 || z >= dimension) {
+			return 0.0;
+		}
+		return ctx.sdf.distance(x, y, z) - TemporalReprojection.START_CLEARANCE;
+	}
+
+	/* Depth in front of the camera of voxel space march position 'm'. */
+	private float hitDepth(double mx, double my, double mz, int cubeSize) {
+		return (float) -(((mx - 0.5) / cubeSize - cam.position.x) * forward.x +
+						 ((my - 0.5) / cubeSize - cam.position.y) * forward.y +
+						 ((mz - 0.5) / cubeSize - cam.position.z) * forward.z);
+	}
+
+	/* Distance along the unit ray 'r' to START_MARGIN voxels before reprojected depth 'depth'. */
+	private double startDistance(float depth, double rx, double ry, double rz) {
+		return (depth - startMargin) / -(rx * forward.x + ry * forward.y + rz * forward.z);
+	}
+
+	private void flushStatistics() {
+		if (vectorMarcher != null) {
+			steps += vectorMarcher.steps;
+			reprojectedRays += vectorMarcher.reprojectedRays;
+			fallbacks += vectorMarcher.fallbacks;
+			vectorMarcher.steps = 0;
+			vectorMarcher.reprojectedRays = 0;
+			vectorMarcher.fallbacks = 0;
+		}
+		if (reprojection != null) {
+			reprojection.addStatistics(rays, steps, reprojectedRays, fallbacks);
+		}
+		rays = 0;
+		steps = 0;
+		reprojectedRays = 0;
+		fallbacks = 0;
+	}
+
+	/* Sets 'pixelRay' to the unnormalized world space ray of pixel (x, y). The ray of pixel (x + 1, y) is this plus
+	 * 'right', rotation keeps lengths so normalizing gives the camera space ray rotated. */
+	private void startRow(int x, int y) {
+		double rx = firstRayX + x;
+		double ry = firstRayY + y;
+		pixelRay.set(rx * right.x + ry * up.x + firstRayZ * forward.x,
+					 rx * right.y + ry * up.y + firstRayZ * forward.y,
+					 rx * right.z + ry * up.z + firstRayZ * forward.z);
+	}
+
+	/* Color of the surface in the cell the current 'ray' stopped in. */
+	private int shade(int marchX, int marchY, int marchZ) {
+		// The normal is only needed once the surface is hit
+		ctx.normals.normal(marchX, marchY, marchZ, normal);
+		double diffuse = Math.max(-lightDir.dot(normal), 0.3);
+		
+		// Calculate reflected ray
+		reflected.set(ray);
+		tempVec.set(normal);
+		tempVec.scale(2.0 * ray.dot(normal));
+		reflected.sub(tempVec);
+
+		int photoSphereColor = photoSphereTrace.color(reflected);
+		int diffuseColorR = (int) (diffuse * ((ctx.diffuseColor >> 16) & 0xff));
+		int diffuseColorG = (int) (diffuse * ((ctx.diffuseColor >> 8) & 0xff));
+		int diffuseColorB = (int) (diffuse * (ctx.diffuseColor & 0xff));
+		int photoSphereColorR = (photoSphereColor >> 16) & 0xff;
+		int photoSphereColorG = (photoSphereColor >> 8) & 0xff;
+		int photoSphereColorB = photoSphereColor & 0xff;
+		double dsr1 = ctx.diffuseSpecularRatio;
+		double dsr2 = 1.0 - ctx.diffuseSpecularRatio;
+		int pixelR = (int) (diffuseColorR * dsr2 + photoSphereColorR * dsr1);
+		int pixelG = (int) (diffuseColorG * dsr2 + photoSphereColorG * dsr1);
+		int pixelB = (int) (diffuseColorB * dsr2 + photoSphereColorB * dsr1);
+		return (pixelR << 16) | (pixelG << 8) | pixelB;
+	}
+
+	/* Marches the rays of pixels [x0, x1) of camera row 'y' as one packet. Every lane takes the same steps as it would
+	 * on its own, so the image is identical to renderSpan(), but the distance field loads of neighbouring rays are issued
+	 * together instead of one dependent chain at a time. Lanes that leave the field or hit the surface drop out of the
+	 * active list, and once less than a quarter of the packet is left the rest is finished one ray at a time. */
+	private void renderPacket(int y, int x0, int x1) {
+		final int cubeSize = ctx.voxelsDimension - 1;
+
+		int pixelIndex = x0 + (cam.height - 1 - y) * cam.width;
+		packetDepthIndex = x0 + y * cam.width;
+		int active = 0;
+		startRow(x0, y);
+		for (int lane = 0; lane < x1 - x0; lane++, pixelIndex++) {
+			ray.set(pixelRay);
+			ray.normalize();
+			pixelRay.add(right);
+
+			int resultIndex = 0;
+			MathUtil.rayTraceCube(cam.position, ray, rayTraceResults);
+			if (rayTraceResults[4] < rayTraceResults[0]) {
+				resultIndex = 4;
+			}
+			if (rayTraceResults[resultIndex] == Double.POSITIVE_INFINITY) {
+				ctx.screenPixels[pixelIndex] = 0;
+				if (depth != null) {
+					depth[packetDepthIndex + lane] = TemporalReprojection.NO_HIT;
+				}
+				continue;
+			}
+			rays++;
+			laneX[lane] = rayTraceResults[resultIndex + 1] * cubeSize + 0.5;
+			laneY[lane] = rayTraceResults[resultIndex + 2] * cubeSize + 0.5;
+			laneZ[lane] = rayTraceResults[resultIndex + 3] * cubeSize + 0.5;
+			laneTravelled[lane] = 0.0;
+			laneSkipTo[lane] = -1.0;
+			if (startDepth != null && startDepth[packetDepthIndex + lane] != TemporalReprojection.NO_HIT) {
+				double start = startDistance(startDepth[packetDepthIndex + lane], ray.x, ray.y, ray.z);
+				if (start > rayTraceResults[resultIndex]) {
+					double skipTo = (start - rayTraceResults[resultIndex]) * cubeSize;
+					double clearance = clearance(laneX[lane] + ray.x * skipTo, laneY[lane] + ray.y * skipTo,
+							laneZ[lane] + ray.z * skipTo);
+					double gapEnd = skipTo - clearance;
+					skipTo += clearance + TemporalReprojection.START_CLEARANCE;
+					if (clearance <= 0.0) {
+						fallbacks++;
+					} else if (gapEnd <= 0.0) {
+						reprojectedRays++;
+						laneX[lane] += ray.x * skipTo;
+						laneY[lane] += ray.y * skipTo;
+						laneZ[lane] += ray.z * skipTo;
+					} else {
+						laneSkipTo[lane] = skipTo;
+						laneGapEnd[lane] = gapEnd;
+					}
+				}
+			}
+			laneRayX[lane] = ray.x;
+			laneRayY[lane] = ray.y;
+			laneRayZ[lane] = ray.z;
+			lanePixel[lane] = pixelIndex;
+			activeLanes[active++] = lane;
+		}
+
+		int hits = 0;
+		if (vectorCells != null) {
+			vectorMarcher.march(activeLanes, active, packetWidth, vectorCells, ctx.voxelsDimension);
+			for (int i = 0; i < active; i++) {
+				int lane = activeLanes[i];
+				int state = vectorMarcher.state(lane);
+				if (state == MISSED) {
+					missLane(lane);
+				} else {
+					// Lanes left marching are finished one ray at a time
+					while (state == MARCHING) {
+						state = stepLane(lane);
+					}
+					if (state == HIT) {
+						hitLanes[hits++] = lane;
+					}
+				}
+			}
+			active = 0;
+		}
+		while (active > 0) {
+			if (4 * active < packetWidth) {
+				// Diverged, too few lanes left to be worth the bookkeeping
+				for (int i = 0; i < active; i++) {
+					int lane = activeLanes[i];
+					int state;
+					while ((state = stepLane(lane)) == MARCHING) {
+					}
+					if (state == HIT) {
+						hitLanes[hits++] = lane;
+					}
+				}
+				break;
+			}
+			int stillActive = 0;
+			for (int i = 0; i < active; i++) {
+				int lane = activeLanes[i];
+				int state = stepLane(lane);
+				if (state == MARCHING) {
+					activeLanes[stillActive++] = lane;
+				} else if (state == HIT) {
+					hitLanes[hits++] = lane;
+				}
+			}
+			active = stillActive;
+		}
+
+		// Shading is kept out of the march loop so it stays small
+		for (int i = 0; i < hits; i++) {
+			int lane = hitLanes[i];
+			ray.set(laneRayX[lane], laneRayY[lane], laneRayZ[lane]);
+			ctx.screenPixels[lanePixel[lane]] = shade((int) laneX[lane], (int) laneY[lane], (int) laneZ[lane]);
+			if (depth != null) {
+				depth[packetDepthIndex + lane] = hitDepth(laneX[lane], laneY[lane], laneZ[lane], cubeSize);
+			}
+		}
+	}
+
+	static final int MARCHING = 0, MISSED = 1, HIT = 2;
+
+	/* One march step of a packet lane. Once the ray leaves the field the lane's pixel is cleared and MISSED returned,
+	 * once it hits the surface it stops where it is and HIT is returned. A lane with a reprojected start jumps to it like
+	 * renderSpan() does. */
+	private int stepLane(int lane) {
+		steps++;
+		int dimension = ctx.voxelsDimension;
+		int marchX = (int) laneX[lane];
+		int marchY = (int) laneY[lane];
+		int marchZ = (int) laneZ[lane];
+		if (marchX < 0 || marchX >= dimension ||
+			marchY < 0 || marchY >= dimension ||
+			marchZ < 0 || marchZ >= dimension) {
+			missLane(lane);
+			return MISSED;
+		}
+
+		double distance = ctx.sdf.distance(marchX, marchY, marchZ);
+		if (distance < 1.0) {
+			return HIT;
+		}
+		double skipTo = laneSkipTo[lane];
+		if (skipTo >= 0.0 && laneTravelled[lane] + distance >= laneGapEnd[lane]) {
+			if (skipTo > laneTravelled[lane] + distance) {
+				reprojectedRays++;
+				distance = skipTo - laneTravelled[lane];
+			} else {
+				fallbacks++;
+			}
+			laneSkipTo[lane] = -1.0;
+		}
+		laneTravelled[lane] += distance;
+
+		laneX[lane] += laneRayX[lane] * distance;
+		laneY[lane] += laneRayY[lane] * distance;
+		laneZ[lane] += laneRayZ[lane] * distance;
+		return MARCHING;
+	}
+
+	/* Clears the pixel of a lane whose ray left the field. */
+	private void missLane(int lane) {
+		ctx.screenPixels[lanePixel[lane]] = 0;
+		if (depth != null) {
+			depth[packetDepthIndex + lane] = TemporalReprojection.NO_HIT;
+		}
+	}
+
+	private static class PhotoSphereTrace {
+		private int[] psc;
+		private int psw, psh;
+		private double pswr, pshr;
+		public PhotoSphereTrace(int[] psc, int psw, int psh, double pswr, double pshr) {
+			this.psc = psc;
+			this.psw = psw;
+			this.psh = psh;
+			this.pswr = pswr;
+			this.pshr = pshr;
+		}
+		public int color(Vector3 ray) {
+			double rayYaw = MathUtil.fastAtan2(ray.x, ray.z);
+			double rayPitch = MathUtil.fastAtan2(Math.abs(ray.y), Math.sqrt(1.0 - ray.y * ray.y));
+			if (ray.y < 0)
+				rayPitch = -rayPitch;
+			rayYaw = MathUtil._2_PI - rayYaw;
+			rayPitch = MathUtil.PI_2 - rayPitch;
+
+			int photoSphereX = (int) (rayYaw * pswr);
+			int photoSphereY = (int) (rayPitch * pshr);
+
+			if (photoSphereX < 0) photoSphereX += psw;
+			else if (photoSphereX >= psw) photoSphereX -= psw;
+			if (photoSphereY < 0) photoSphereY += psh;
+			else if (photoSphereY >= psh) photoSphereY -= psh;
+
+			return psc[photoSphereX + photoSphereY * psw];
+		}
+	}
+}
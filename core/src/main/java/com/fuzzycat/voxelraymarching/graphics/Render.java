@@ -0,0 +1,115 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+public class Render {
+	private Camera camera;
+	private FrameScheduler scheduler;
+	private boolean begun;
+	
+	private DynamicResolution dynamicResolution;
+	private RenderContext scaledContext;
+	private int[] scaledPixels = new int[0];
+	
+	/* Renders tiles on one thread per available processor. */
+	public Render(int width, int height, double fov) {
+		this(width, height, fov, new TileScheduler());
+	}
+	
+	public Render(int width, int height, double fov, int threadCount) {
+		this(width, height, fov, new TileScheduler(threadCount));
+	}
+	
+	public Render(int width, int height, double fov, FrameScheduler scheduler) {
+		this.scheduler = scheduler;
+		camera = new Camera();
+		camera.width = width;
+		camera.height = height;
+		camera.fov = fov;
+		camera.position = new Vector3();
+		camera.yaw = 0.0;
+		camera.pitch = 0.0;
+	}
+	
+	/* Start the scheduler's workers, they will all wait for their job every frame. */
+	public void begin() {
+		begun = true;
+		scheduler.begin();
+	}
+	
+	/* Stop the scheduler's workers. */
+	public void end() {
+		begun = false;
+		scheduler.end();
+	}
+	
+	/* Draws the camera's view into context.screenPixels, which must hold camera.width * camera.height pixels. Rays are
+	 * set up from the camera in every frame, so its size, field of view and pose may change between any two frames. */
+	public void rayMarchVoxels(RenderContext context) {
+		if (!begun)
+			return;
+		
+		if (dynamicResolution == null) {
+			renderFrame(context);
+			return;
+		}
+		
+		long frameStart = System.nanoTime();
+		// The output is the camera's size, which may have changed since the last frame
+		int outputWidth = camera.width;
+		int outputHeight = camera.height;
+		double scale = dynamicResolution.getScale();
+		int width = Math.max(1, (int) Math.round(outputWidth * scale));
+		int height = Math.max(1, (int) Math.round(outputHeight * scale));
+		if (width >= outputWidth && height >= outputHeight) {
+			renderFrame(context);
+		} else {
+			if (scaledPixels.length < width * height) {
+				scaledPixels = new int[width * height];
+			}
+			// The camera keeps its horizontal field of view at any width, so the smaller frame covers the same view
+			scaledContext.set(context);
+			scaledContext.screenPixels = scaledPixels;
+			camera.width = width;
+			camera.height = height;
+			try {
+				renderFrame(scaledContext);
+			} finally {
+				camera.width = outputWidth;
+				camera.height = outputHeight;
+			}
+			Upscale.bilinear(scaledPixels, width, height, context.screenPixels, outputWidth, outputHeight);
+		}
+		dynamicResolution.update(System.nanoTime() - frameStart);
+	}
+	
+	private void renderFrame(RenderContext context) {
+		TemporalReprojection reprojection = context.reprojection;
+		if (reprojection != null) {
+			reprojection.beginFrame(camera);
+		}
+		scheduler.renderFrame(context, camera);
+		if (reprojection != null) {
+			reprojection.endFrame(camera);
+		}
+	}
+	
+	/* Draws each frame at the resolution 'controller' picks and upscales it to the camera's, or always at the camera's
+	 * resolution when null. */
+	public void setDynamicResolution(DynamicResolution controller) {
+		dynamicResolution = controller;
+		if (controller != null && scaledContext == null) {
+			scaledContext = new RenderContext();
+		}
+	}
+	
+	public DynamicResolution getDynamicResolution() {
+		return dynamicResolution;
+	}
+	
+	public Camera getCamera() {
+		return camera;
+	}
+	
+	public FrameScheduler getScheduler() {
+		return scheduler;
+	}
+}
@@ -0,0 +1,38 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import com.fuzzycat.voxelraymarching.voxel.DistanceField;
+import com.fuzzycat.voxelraymarching.voxel.NormalField;
+
+public class RenderContext {
+	public DistanceField sdf;
+	public NormalField normals;
+	public int voxelsDimension;
+	public int[] photoSphereColor;
+	public int photoSphereHeight; 
+	public double diffuseSpecularRatio;
+	public int diffuseColor;
+	public int[] screenPixels;
+	/* Rays marched together as one packet by RayMarcher, 0 or 1 marches one ray at a time. */
+	public int packetWidth;
+	/* Experimental: marches the packets on the incubating Vector API (see VectorPacketMarcher) when set, the module is
+	 * present (--add-modules jdk.incubator.vector) and 'sdf' is a DoubleDistanceField in the LINEAR layout. Otherwise the
+	 * packets are marched by the scalar loop, and the first frame prints why to System.err. */
+	public boolean vectorPackets;
+	/* Starts rays near the depth the previous frame hit at when set, null marches every ray from the voxel cube. */
+	public TemporalReprojection reprojection;
+	
+	/* Copies every field of 'other'. */
+	public void set(RenderContext other) {
+		sdf = other.sdf;
+		normals = other.normals;
+		voxelsDimension = other.voxelsDimension;
+		photoSphereColor = other.photoSphereColor;
+		photoSphereHeight = other.photoSphereHeight;
+		diffuseSpecularRatio = other.diffuseSpecularRatio;
+		diffuseColor = other.diffuseColor;
+		screenPixels = other.screenPixels;
+		packetWidth = other.packetWidth;
+		vectorPackets = other.vectorPackets;
+		reprojection = other.reprojection;
+	}
+}
@@ -0,0 +1,79 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import java.util.concurrent.Phaser;
+
+/* Worker of RowScheduler, renders every indexStride-th row of each frame. All workers and the scheduler meet at one
+ * shared barrier twice per frame: once to release the frame and once when every row is done. */
+public class RenderThread extends Thread {
+	private final Phaser frameBarrier;
+	private volatile boolean running;
+	
+	private RenderContext ctx;
+	private Camera cam;
+	private int index;
+	private int indexStride;
+	private RayMarcher marcher;
+	private long startNanos;
+	private long endNanos;
+	
+	/* A worker that is never started, only used through renderRows(). */
+	public RenderThread() {
+		this(null);
+	}
+	
+	public RenderThread(Phaser frameBarrier) {
+		this.frameBarrier = frameBarrier;
+		running = true;
+		marcher = new RayMarcher();
+	}
+	
+	@Override
+	public void run() {
+		while (true) {
+			// Wait for the scheduler to release the next frame, the barrier publishes the job set by setJob()
+			frameBarrier.arriveAndAwaitAdvance();
+			if (!running)
+				break;
+			
+			startNanos = System.nanoTime();
+			scanRows();
+			endNanos = System.nanoTime();
+			
+			// Signal this share of the frame is done
+			frameBarrier.arriveAndAwaitAdvance();
+		}
+	}
+	
+	private void scanRows() {
+		marcher.begin(ctx, cam);
+		marcher.renderRows(index, indexStride);
+	}
+	
+	/* Sets the job of the next frame, must be called before the scheduler arrives at the barrier. */
+	public void setJob(RenderContext context, Camera cameraData, int index, int indexStride) {
+		ctx = context;
+		cam = cameraData;
+		this.index = index;
+		this.indexStride = indexStride;
+	}
+	
+	/* Renders this thread's share of rows on the calling thread, without the handoff. Used by benchmarks. */
+	public void renderRows(RenderContext context, Camera cameraData, int index, int indexStride) {
+		setJob(context, cameraData, index, indexStride);
+		scanRows();
+	}
+	
+	/* System.nanoTime() when this thread started and finished its rows of the last frame. */
+	public long getStartNanos() {
+		return startNanos;
+	}
+	
+	public long getEndNanos() {
+		return endNanos;
+	}
+	
+	/* Makes the thread exit at the next frame release instead of rendering. */
+	public void stopRunning() {
+		running = false;
+	}
+}
@@ -0,0 +1,84 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import java.util.concurrent.Phaser;
+
+/* Gives each of a fixed set of threads every n-th row of the frame, n being the number of threads. */
+public class RowScheduler implements FrameScheduler {
+	private RenderThread[] threads;
+	private Phaser frameBarrier;
+	private long dispatchNanos;
+	private long joinNanos;
+	
+	public RowScheduler(int threadCount) {
+		threads = new RenderThread[threadCount];
+	}
+	
+	@Override
+	public void begin() {
+		// Every worker plus the thread calling renderFrame()
+		frameBarrier = new Phaser(threads.length + 1);
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new RenderThread(frameBarrier);
+			threads[i].start();
+		}
+	}
+	
+	@Override
+	public void end() {
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].stopRunning();
+		}
+		// Release the workers, they see they were stopped and exit
+		frameBarrier.arriveAndAwaitAdvance();
+		for (int i = 0; i < threads.length; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			threads[i] = null;
+		}
+		frameBarrier = null;
+	}
+	
+	@Override
+	public void renderFrame(RenderContext context, Camera camera) {
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].setJob(context, camera, i, threads.length);
+		}
+		long frameStart = System.nanoTime();
+		// Begin rendering on every thread
+		frameBarrier.arriveAndAwaitAdvance();
+		// Wait for every thread to finish rendering
+		frameBarrier.arriveAndAwaitAdvance();
+		long frameEnd = System.nanoTime();
+		
+		long lastStart = frameStart;
+		long lastEnd = frameStart;
+		for (int i = 0; i < threads.length; i++) {
+			lastStart = Math.max(lastStart, threads[i].getStartNanos());
+			lastEnd = Math.max(lastEnd, threads[i].getEndNanos());
+		}
+		dispatchNanos = lastStart - frameStart;
+		joinNanos = frameEnd - lastEnd;
+	}
+	
+	@Override
+	public long[] getWorkerNanos() {
+		long[] nanos = new long[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			nanos[i] = threads[i] != null ? threads[i].getEndNanos() - threads[i].getStartNanos() : 0;
+		}
+		return nanos;
+	}
+	
+	@Override
+	public long getDispatchNanos() {
+		return dispatchNanos;
+	}
+	
+	@Override
+	public long getJoinNanos() {
+		return joinNanos;
+	}
+}
@@ -0,0 +1,30 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import com.fuzzycat.voxelraymarching.voxel.VoxelModel;
+
+/* Everything needed to render a frame apart from the camera. */
+public class Scene {
+	public VoxelModel model;
+	public PhotoSphere photoSphere;
+	public Material material;
+	
+	public Scene(VoxelModel model, PhotoSphere photoSphere, Material material) {
+		this.model = model;
+		this.photoSphere = photoSphere;
+		this.material = material;
+	}
+	
+	/* Creates the context passed to Render.rayMarchVoxels() to draw this scene into 'target'. */
+	public RenderContext createContext(FrameBuffer target) {
+		RenderContext context = new RenderContext();
+		context.sdf = model.sdf;
+		context.normals = model.normals;
+		context.voxelsDimension = model.dimension;
+		context.photoSphereColor = photoSphere.color;
+		context.photoSphereHeight = photoSphere.height;
+		context.diffuseSpecularRatio = material.diffuseSpecularRatio;
+		context.diffuseColor = material.diffuseColor;
+		context.screenPixels = target.pixels;
+		return context;
+	}
+}
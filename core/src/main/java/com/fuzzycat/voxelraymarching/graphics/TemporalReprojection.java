@@ -0,0 +1,224 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Starts each frame's rays close to the surface the previous frame found. RayMarcher records how far in front of the
+ * camera every pixel hit, and before the next frame those hit points are projected into the moved camera, each pixel
+ * keeping the nearest one that lands on it or its eight neighbours. Rays then aim to start START_MARGIN voxels before
+ * that depth instead of where they enter the voxel cube. The distance field at the start, less START_CLEARANCE, is a
+ * radius around it that holds nothing a full march could stop at. A ray only skips the part of its way that radius
+ * covers: it starts there at once if the radius reaches back to the cube, and otherwise marches from the cube until its
+ * own steps reach the radius, then jumps to the start. Rays whose start is outside the field or too close to the surface
+ * march in full, as do pixels with no reprojected hit near them, such as surfaces just coming into view past the
+ * silhouette. The distance read at the start doubles as the first step from there, so a ray that jumps reads no more
+ * cells than a full march. The radius still only covers about what a march's own strides near the start would, and
+ * on the OrbitBenchmark orbit rays take slightly more steps than marching in full (5.26 against 5.20 per pixel), so
+ * the viewers do not offer it. Set on a RenderContext, Render calls beginFrame() and endFrame() around every frame. */
+public class TemporalReprojection {
+	/* Voxels before the reprojected depth that rays start at. */
+	public static final double START_MARGIN = 16.0;
+	/* Voxels taken off the distance at a ray's start: 1 as a march stops below a distance of 1, and twice the farthest a
+	 * position is from the cell center its distance is read at, once for the start and once for the march. */
+	public static final double START_CLEARANCE = 1.0 + Math.sqrt(3.0);
+	/* Depth of pixels whose ray hit nothing, and start depth of pixels with nothing reprojected near them. */
+	public static final float NO_HIT = Float.POSITIVE_INFINITY;
+
+	private final boolean startFromHistory;
+	private int width, height;
+	// Depth of each pixel's hit along the camera's view direction, indexed by camera row
+	private float[] depth = new float[0];
+	private float[] startDepth = new float[0];
+	private float[] scratch = new float[0];
+	private Vector3 right = new Vector3();
+	private Vector3 up = new Vector3();
+	private Vector3 forward = new Vector3();
+
+	// The last frame's depths and the camera they were drawn with
+	private boolean hasPrevious;
+	private float[] previousDepth = new float[0];
+	private int previousWidth, previousHeight;
+	private Vector3 previousPosition = new Vector3();
+	private Vector3 previousRight = new Vector3();
+	private Vector3 previousUp = new Vector3();
+	private Vector3 previousForward = new Vector3();
+	private double previousImagePlaneZ;
+
+	private final LongAdder pixels = new LongAdder();
+	private final LongAdder rays = new LongAdder();
+	private final LongAdder steps = new LongAdder();
+	private final LongAdder reprojectedRays = new LongAdder();
+	private final LongAdder fallbacks = new LongAdder();
+
+	public TemporalReprojection() {
+		this(true);
+	}
+
+	/* With 'startFromHistory' false depths are still recorded and march steps counted, but every ray marches in full,
+	 * as a baseline to compare against. */
+	public TemporalReprojection(boolean startFromHistory) {
+		this.startFromHistory = startFromHistory;
+	}
+
+	/* Reprojects the last frame's depths into 'cam', which is about to be rendered. */
+	public void beginFrame(Camera cam) {
+		width = cam.width;
+		height = cam.height;
+		int count = width * height;
+		if (depth.length < count) {
+			depth = new float[count];
+		}
+		if (startFromHistory) {
+			if (startDepth.length < count) {
+				startDepth = new float[count];
+				scratch = new float[count];
+			}
+			Arrays.fill(startDepth, 0, count, NO_HIT);
+			if (hasPrevious) {
+				reproject(cam);
+			}
+		}
+		pixels.add(count);
+	}
+
+	/* Keeps the depths of the frame just rendered with 'cam' for the next one. */
+	public void endFrame(Camera cam) {
+		float[] swap = previousDepth;
+		previousDepth = depth;
+		depth = swap;
+		previousWidth = width;
+		previousHeight = height;
+		previousPosition.set(cam.position);
+		cam.axes(previousRight, previousUp, previousForward);
+		previousImagePlaneZ = cam.imagePlaneZ();
+		hasPrevious = true;
+	}
+
+	/* Forgets the last frame, for when the camera jumps or the scene changes. */
+	public void reset() {
+		hasPrevious = false;
+	}
+
+	private void reproject(Camera cam) {
+		cam.axes(right, up, forward);
+		double imagePlaneZ = cam.imagePlaneZ();
+		double halfWidth = 0.5 * width;
+		double halfHeight = 0.5 * height;
+		// The unnormalized ray of a previous pixel reaches depth 1 at this fraction of its length
+		double depthScale = -1.0 / previousImagePlaneZ;
+		for (int py = 0; py < previousHeight; py++) {
+			double rx = -0.5 * previousWidth + 0.5;
+			double ry = py - 0.5 * previousHeight + 0.5;
+			// Previous camera's ray of pixel (0, py) relative to the new camera's position, stepped along the row
+			double dx = rx * previousRight.x + ry * previousUp.x + previousImagePlaneZ * previousForward.x;
+			double dy = rx * previousRight.y + ry * previousUp.y + previousImagePlaneZ * previousForward.y;
+			double dz = rx * previousRight.z + ry * previousUp.z + previousImagePlaneZ * previousForward.z;
+			double ox = previousPosition.x - cam.position.x;
+			double oy = previousPosition.y - cam.position.y;
+			double oz = previousPosition.z - cam.position.z;
+			int previousIndex = py * previousWidth;
+			for (int px = 0; px < previousWidth; px++, previousIndex++, dx += previousRight.x, dy += previousRight.y, dz += previousRight.z) {
+				float hitDepth = previousDepth[previousIndex];
+				if (hitDepth == NO_HIT)
+					continue;
+				double t = hitDepth * depthScale;
+				double vx = ox + dx * t;
+				double vy = oy + dy * t;
+				double vz = oz + dz * t;
+
+				double cz = vx * forward.x + vy * forward.y + vz * forward.z;
+				if (cz >= 0.0)
+					continue;
+				double s = imagePlaneZ / cz;
+				double cx = s * (vx * right.x + vy * right.y + vz * right.z);
+				double cy = s * (vx * up.x + vy * up.y + vz * up.z);
+				if (cx < -halfWidth || cx >= halfWidth || cy < -halfHeight || cy >= halfHeight)
+					continue;
+				int index = (int) (cx + halfWidth) + (int) (cy + halfHeight) * width;
+				if (-cz < startDepth[index]) {
+					startDepth[index] = (float) -cz;
+				}
+			}
+		}
+
+		// Nearest of each pixel's 3x3 neighbourhood, covering the gaps between scattered points when the view zooms in
+		for (int y = 0; y < height; y++) {
+			int row = y * width;
+			for (int x = 0; x < width; x++) {
+				scratch[row + x] = nearest(startDepth, row + Math.max(x - 1, 0), row + x, row + Math.min(x + 1, width - 1));
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			int above = Math.max(y - 1, 0) * width;
+			int row = y * width;
+			int below = Math.min(y + 1, height - 1) * width;
+			for (int x = 0; x < width; x++) {
+				startDepth[row + x] = nearest(scratch, above + x, row + x, below + x);
+			}
+		}
+	}
+
+	/* Smallest of three depths, none of them NaN. */
+	private static float nearest(float[] depths, int a, int b, int c) {
+		float nearest = depths[a] < depths[b] ? depths[a] : depths[b];
+		return nearest < depths[c] ? nearest : depths[c];
+	}
+
+	/* This frame's hit depth of pixel x + y * width, camera rows bottom to top, written by RayMarcher. Depths are camera
+	 * space distances in front of the camera, not along the pixel's ray. */
+	float[] getDepth() {
+		return depth;
+	}
+
+	/* Reprojected depth the ray of each pixel starts near, NO_HIT for a full march, or null when every ray marches in
+	 * full. */
+	float[] getStartDepth() {
+		return startFromHistory ? startDepth : null;
+	}
+
+	void addStatistics(long rays, long steps, long reprojectedRays, long fallbacks) {
+		this.rays.add(rays);
+		this.steps.add(steps);
+		this.reprojectedRays.add(reprojectedRays);
+		this.fallbacks.add(fallbacks);
+	}
+
+	/* Pixels rendered since the last reset. */
+	public long getPixels() {
+		return pixels.sum();
+	}
+
+	/* Rays that entered the voxel cube. */
+	public long getRays() {
+		return rays.sum();
+	}
+
+	/* Distance field samples taken by all rays, the ones reading the distance at a reprojected start included. */
+	public long getSteps() {
+		return steps.sum();
+	}
+
+	/* Rays that skipped part of their march by jumping to a reprojected start. */
+	public long getReprojectedRays() {
+		return reprojectedRays.sum();
+	}
+
+	/* Rays with a reprojected start that marched in full, as it was unsafe or their own steps passed it. */
+	public long getFallbacks() {
+		return fallbacks.sum();
+	}
+
+	/* Average march steps per rendered pixel since the last reset. */
+	public double getStepsPerPixel() {
+		long p = pixels.sum();
+		return p == 0 ? 0.0 : steps.sum() / (double) p;
+	}
+
+	public void resetStatistics() {
+		pixels.reset();
+		rays.reset();
+		steps.reset();
+		reprojectedRays.reset();
+		fallbacks.reset();
+	}
+}
@@ -0,0 +1,175 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Cuts the frame into square tiles that workers claim one at a time from a shared counter, so a worker that drew cheap
+ * sky tiles keeps taking tiles while another is still marching through the model. Workers run on any ExecutorService,
+ * by default a ForkJoinPool owned by the scheduler. */
+public class TileScheduler implements FrameScheduler {
+	public static final int DEFAULT_TILE_SIZE = 16;
+	
+	private ExecutorService executor;
+	private boolean ownsExecutor;
+	private int parallelism;
+	private int tileSize;
+	
+	private ArrayList<Callable<Void>> workers;
+	private RayMarcher[] marchers;
+	private long[] workerStart;
+	private long[] workerEnd;
+	private long dispatchNanos;
+	private long joinNanos;
+	private AtomicInteger nextTile;
+	private RenderContext ctx;
+	private Camera cam;
+	private int tilesX, tileCount;
+	
+	/* One worker per available processor on a private ForkJoinPool. */
+	public TileScheduler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	public TileScheduler(int threadCount) {
+		this(null, threadCount, DEFAULT_TILE_SIZE);
+	}
+	
+	/* Runs 'parallelism' workers, the calling thread and 'parallelism' - 1 tasks on 'executor', which is left running
+	 * by end(). A null executor means a private ForkJoinPool, none is started for a single worker. */
+	public TileScheduler(ExecutorService executor, int parallelism, int tileSize) {
+		this.executor = executor;
+		this.ownsExecutor = executor == null;
+		this.parallelism = parallelism;
+		this.tileSize = tileSize;
+		nextTile = new AtomicInteger();
+		marchers = new RayMarcher[parallelism];
+		workerStart = new long[parallelism];
+		workerEnd = new long[parallelism];
+		for (int i = 0; i < parallelism; i++) {
+			marchers[i] = new RayMarcher();
+		}
+		workers = new ArrayList<Callable<Void>>();
+		// Worker 0 runs on the thread calling renderFrame(), which would otherwise sit idle
+		for (int i = 1; i < parallelism; i++) {
+			final int worker = i;
+			workers.add(() -> {
+				renderTiles(worker);
+				return null;
+			});
+		}
+	}
+	
+	@Override
+	public void begin() {
+		if (ownsExecutor && parallelism > 1) {
+			executor = new ForkJoinPool(parallelism - 1);
+		}
+	}
+	
+	@Override
+	public void end() {
+		if (ownsExecutor && executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+	
+	@Override
+	public void renderFrame(RenderContext context, Camera camera) {
+		ctx = context;
+		cam = camera;
+		tilesX = (camera.width + tileSize - 1) / tileSize;
+		tileCount = tilesX * ((camera.height + tileSize - 1) / tileSize);
+		nextTile.set(0);
+		
+		long frameStart = System.nanoTime();
+		ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>(workers.size());
+		Throwable failure = null;
+		try {
+			for (Callable<Void> worker : workers) {
+				futures.add(executor.submit(worker));
+			}
+			renderTiles(0);
+		} catch (RuntimeException | Error e) {
+			failure = e;
+			// Leave no tiles for the other workers to claim
+			nextTile.set(tileCount);
+		}
+		// Every tile is claimed once worker 0 returns, so nothing is left to cancel. Every worker is waited for, even after
+		// a failure or an interrupt, so none draws into the frame after it returns. The interrupt is kept for the caller and
+		// the first failure thrown
+		boolean interrupted = false;
+		for (Future<Void> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause();
+					}
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+		long frameEnd = System.nanoTime();
+		
+		long lastStart = frameStart;
+		long lastEnd = frameStart;
+		for (int i = 0; i < parallelism; i++) {
+			lastStart = Math.max(lastStart, workerStart[i]);
+			lastEnd = Math.max(lastEnd, workerEnd[i]);
+		}
+		dispatchNanos = lastStart - frameStart;
+		joinNanos = frameEnd - lastEnd;
+	}
+	
+	private void renderTiles(int worker) {
+		workerStart[worker] = System.nanoTime();
+		RayMarcher marcher = marchers[worker];
+		marcher.begin(ctx, cam);
+		int tile;
+		while ((tile = nextTile.getAndIncrement()) < tileCount) {
+			int x0 = (tile % tilesX) * tileSize;
+			int y0 = (tile / tilesX) * tileSize;
+			marcher.renderTile(x0, y0, x0 + tileSize, y0 + tileSize);
+		}
+		workerEnd[worker] = System.nanoTime();
+	}
+	
+	@Override
+	public long[] getWorkerNanos() {
+		long[] nanos = new long[parallelism];
+		for (int i = 0; i < parallelism; i++) {
+			nanos[i] = workerEnd[i] - workerStart[i];
+		}
+		return nanos;
+	}
+	
+	@Override
+	public long getDispatchNanos() {
+		return dispatchNanos;
+	}
+	
+	@Override
+	public long getJoinNanos() {
+		return joinNanos;
+	}
+}
@@ -0,0 +1,40 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+/* Resizes packed 0xRRGGBB images for dynamic resolution. */
+public class Upscale {
+
+	/* Bilinear filtering of the 'sourceWidth' x 'sourceHeight' image 'source' into 'target', with pixel centers aligned
+	 * and edges clamped. Weights are 8 bit fixed point, red and blue are filtered together in one int. */
+	public static void bilinear(int[] source, int sourceWidth, int sourceHeight, int[] target, int targetWidth, int targetHeight) {
+		int[] column = new int[targetWidth];
+		int[] columnWeight = new int[targetWidth];
+		for (int x = 0; x < targetWidth; x++) {
+			double sx = Math.max(0.0, (x + 0.5) * sourceWidth / targetWidth - 0.5);
+			column[x] = Math.min((int) sx, sourceWidth - 1);
+			columnWeight[x] = column[x] == sourceWidth - 1 ? 0 : (int) ((sx - column[x]) * 256.0);
+		}
+
+		for (int y = 0; y < targetHeight; y++) {
+			double sy = Math.max(0.0, (y + 0.5) * sourceHeight / targetHeight - 0.5);
+			int row = Math.min((int) sy, sourceHeight - 1);
+			int rowWeight = row == sourceHeight - 1 ? 0 : (int) ((sy - row) * 256.0);
+			int top = row * sourceWidth;
+			int bottom = rowWeight == 0 ? top : top + sourceWidth;
+			int targetIndex = y * targetWidth;
+			for (int x = 0; x < targetWidth; x++, targetIndex++) {
+				int left = column[x];
+				int right = columnWeight[x] == 0 ? left : left + 1;
+				int upper = lerp(source[top + left], source[top + right], columnWeight[x]);
+				int lower = lerp(source[bottom + left], source[bottom + right], columnWeight[x]);
+				target[targetIndex] = lerp(upper, lower, rowWeight);
+			}
+		}
+	}
+
+	/* Blends two 0xRRGGBB colors, 'weight' of 256 being all 'b'. */
+	private static int lerp(int a, int b, int weight) {
+		int redBlue = (((a & 0xff00ff) * (256 - weight) + (b & 0xff00ff) * weight) >>> 8) & 0xff00ff;
+		int green = (((a & 0x00ff00) * (256 - weight) + (b & 0x00ff00) * weight) >> 8) & 0x00ff00;
+		return redBlue | green;
+	}
+}
@@ -0,0 +1,142 @@
+package com.fuzzycat.voxelraymarching.graphics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/* Experimental. The march loop of RayMarcher's ray packets on the incubating Vector API, for a DOUBLE distance field in
+ * the LINEAR layout only: other encodings and layouts would each need their own gather. Lanes of the packet are marched
+ * in vectors of the preferred width, lanes that are done masked off, and the distance field cells of a vector are
+ * fetched with one gather. Every lane takes the same steps, with the same arithmetic, as RayMarcher.stepLane(), so the
+ * image is identical. Only loaded by RayMarcher once the module is present, which needs --add-modules
+ * jdk.incubator.vector. */
+final class VectorPacketMarcher {
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	// Cell indices, as many lanes as DOUBLES
+	private static final VectorSpecies<Integer> INDICES = VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+	private static final int LANES = DOUBLES.length();
+	
+	// The lane arrays of the RayMarcher, shared
+	private final double[] laneX, laneY, laneZ;
+	private final double[] laneRayX, laneRayY, laneRayZ;
+	private final double[] laneTravelled, laneSkipTo, laneGapEnd;
+	// Per lane, still marching, and RayMarcher.MARCHING, MISSED or HIT
+	private final boolean[] active;
+	private final int[] state;
+	private final int[] index = new int[LANES];
+	
+	// March statistics, added to the RayMarcher's own and cleared by it
+	long steps, reprojectedRays, fallbacks;
+	
+	/* Length of lane arrays holding 'packetWidth' lanes in whole vectors, as the constructor needs. */
+	static int paddedLength(int packetWidth) {
+		return (packetWidth + LANES - 1) / LANES * LANES;
+	}
+	
+	VectorPacketMarcher(double[] laneX, double[] laneY, double[] laneZ, double[] laneRayX, double[] laneRayY, double[] laneRayZ,
+						double[] laneTravelled, double[] laneSkipTo, double[] laneGapEnd) {
+		this.laneX = laneX;
+		this.laneY = laneY;
+		this.laneZ = laneZ;
+		this.laneRayX = laneRayX;
+		this.laneRayY = laneRayY;
+		this.laneRayZ = laneRayZ;
+		this.laneTravelled = laneTravelled;
+		this.laneSkipTo = laneSkipTo;
+		this.laneGapEnd = laneGapEnd;
+		active = new boolean[laneX.length];
+		state = new int[laneX.length];
+	}
+	
+	/* Marches lanes activeLanes[0, count) of the packet until fewer than a quarter of its 'packetWidth' lanes are still
+	 * marching, reading the cells of a field of width 'dimension' from 'cells'. See state() for the outcome per lane. */
+	void march(int[] activeLanes, int count, int packetWidth, double[] cells, int dimension) {
+		int lanes = 0;
+		for (int i = 0; i < count; i++) {
+			int lane = activeLanes[i];
+			active[lane] = true;
+			state[lane] = RayMarcher.MARCHING;
+			lanes = Math.max(lanes, lane + 1);
+		}
+		int planeSize = dimension * dimension;
+		int remaining = count;
+		while (remaining > 0 && 4 * remaining >= packetWidth) {
+			for (int offset = 0; offset < lanes; offset += LANES) {
+				VectorMask<Double> live = VectorMask.fromArray(DOUBLES, active, offset);
+				if (!live.anyTrue())
+					continue;
+				steps += live.trueCount();
+				DoubleVector x = DoubleVector.fromArray(DOUBLES, laneX, offset);
+				DoubleVector y = DoubleVector.fromArray(DOUBLES, laneY, offset);
+				DoubleVector z = DoubleVector.fromArray(DOUBLES, laneZ, offset);
+				
+				// Truncated like the (int) casts of the scalar march
+				IntVector cellX = (IntVector) x.convertShape(VectorOperators.D2I, INDICES, 0);
+				IntVector cellY = (IntVector) y.convertShape(VectorOperators.D2I, INDICES, 0);
+				IntVector cellZ = (IntVector) z.convertShape(VectorOperators.D2I, INDICES, 0);
+				VectorMask<Integer> inFieldCells = inRange(cellX, dimension).and(inRange(cellY, dimension))
+						.and(inRange(cellZ, dimension)).and(live.cast(INDICES));
+				VectorMask<Double> inField = inFieldCells.cast(DOUBLES);
+				// Other lanes read cell 0, so the gather needs no mask
+				cellX.add(cellY.mul(dimension)).add(cellZ.mul(planeSize)).blend(0, inFieldCells.not()).intoArray(index, 0);
+				DoubleVector distance = DoubleVector.fromArray(DOUBLES, cells, 0, index, 0);
+				
+				VectorMask<Double> hit = inField.and(distance.compare(VectorOperators.LT, 1.0));
+				VectorMask<Double> marching = inField.andNot(hit);
+				remaining -= finish(live.andNot(inField), offset, RayMarcher.MISSED) + finish(hit, offset, RayMarcher.HIT);
+				if (!marching.anyTrue())
+					continue;
+				
+				// Jump to the reprojected start once this step and its clearance cover the way there, see stepLane()
+				DoubleVector travelled = DoubleVector.fromArray(DOUBLES, laneTravelled, offset);
+				DoubleVector skipTo = DoubleVector.fromArray(DOUBLES, laneSkipTo, offset);
+				DoubleVector gapEnd = DoubleVector.fromArray(DOUBLES, laneGapEnd, offset);
+				DoubleVector reach = travelled.add(distance);
+				VectorMask<Double> arrived = marching.and(skipTo.compare(VectorOperators.GE, 0.0))
+						.and(reach.compare(VectorOperators.GE, gapEnd));
+				if (arrived.anyTrue()) {
+					VectorMask<Double> jump = arrived.and(skipTo.compare(VectorOperators.GT, reach));
+					reprojectedRays += jump.trueCount();
+					fallbacks += arrived.andNot(jump).trueCount();
+					distance = distance.blend(skipTo.sub(travelled), jump);
+					skipTo.blend(-1.0, arrived).intoArray(laneSkipTo, offset);
+				}
+				// Lanes that are done keep their values
+				travelled.blend(travelled.add(distance), marching).intoArray(laneTravelled, offset);
+				
+				x.blend(x.add(DoubleVector.fromArray(DOUBLES, laneRayX, offset).mul(distance)), marching).intoArray(laneX, offset);
+				y.blend(y.add(DoubleVector.fromArray(DOUBLES, laneRayY, offset).mul(distance)), marching).intoArray(laneY, offset);
+				z.blend(z.add(DoubleVector.fromArray(DOUBLES, laneRayZ, offset).mul(distance)), marching).intoArray(laneZ, offset);
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			active[activeLanes[i]] = false;
+		}
+	}
+	
+	/* RayMarcher.MARCHING if march() stopped before the lane was done, else MISSED or HIT. */
+	int state(int lane) {
+		return state[lane];
+	}
+	
+	private static VectorMask<Integer> inRange(IntVector cell, int dimension) {
+		return cell.compare(VectorOperators.GE, 0).and(cell.compare(VectorOperators.LT, dimension));
+	}
+	
+	/* Stops the lanes of 'done' in the vector at 'offset' with 'outcome', returns how many. */
+	private int finish(VectorMask<Double> done, int offset, int outcome) {
+		long bits = done.toLong();
+		int count = 0;
+		while (bits != 0) {
+			int lane = offset + Long.numberOfTrailingZeros(bits);
+			active[lane] = false;
+			state[lane] = outcome;
+			bits &= bits - 1;
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,25 @@
+package com.fuzzycat.voxelraymarching.util;
+
+/* "--name value" options shared by the command line entry points. */
+public class CommandLine {
+
+	/* Looks up "--name value" in the command line arguments. */
+	public static String option(String[] args, String name, String defaultValue) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals("--" + name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+
+	/* Parses a comma separated list such as "1,4,12". */
+	public static int[] intList(String list) {
+		String[] parts = list.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+}
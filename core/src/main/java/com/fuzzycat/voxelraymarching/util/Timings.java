@@ -0,0 +1,32 @@
+package com.fuzzycat.voxelraymarching.util;
+
+import java.util.Arrays;
+
+/* Summaries of nanosecond timing samples, such as the frame times of a replayed camera path. */
+public class Timings {
+
+	public static double mean(long[] samples) {
+		double sum = 0.0;
+		for (int i = 0; i < samples.length; i++) {
+			sum += samples[i];
+		}
+		return sum / samples.length;
+	}
+
+	/* Nearest-rank percentile, 'p' in [0, 100]. */
+	public static long percentile(long[] samples, double p) {
+		long[] sorted = samples.clone();
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+		if (rank < 0) rank = 0;
+		if (rank >= sorted.length) rank = sorted.length - 1;
+		return sorted[rank];
+	}
+
+	/* One line of min/median/p95/p99/max, in milliseconds. */
+	public static String distribution(long[] samples) {
+		return String.format("min %.3f  median %.3f  p95 %.3f  p99 %.3f  max %.3f ms",
+				percentile(samples, 0.0) / 1.0e6, percentile(samples, 50.0) / 1.0e6, percentile(samples, 95.0) / 1.0e6,
+				percentile(samples, 99.0) / 1.0e6, percentile(samples, 100.0) / 1.0e6);
+	}
+}
@@ -0,0 +1,211 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/* Sparse distance field made of 8x8x8 cell bricks. Bricks within FAR_DISTANCE of the surface store every cell, all
+ * other bricks store one value for all their cells: the smallest distance in the brick outside the model, the largest
+ * inside. Outside the model that value is a lower bound, so rays still never step past the surface, and since it is at
+ * least FAR_DISTANCE a single read moves the ray across whole empty bricks. Cells near the surface, including everything
+ * the normal stencil reads around a hit, keep their exact value. Memory scales with the surface area instead of the
+ * volume. */
+public class BrickedDistanceField implements DistanceField {
+	public static final int BRICK_SHIFT = 3;
+	public static final int BRICK_SIZE = 1 << BRICK_SHIFT;
+	private static final int BRICK_MASK = BRICK_SIZE - 1;
+	private static final int BRICK_CELLS = BRICK_SIZE * BRICK_SIZE * BRICK_SIZE;
+	/* Greater than the reach of the normal stencil at the default delta of 7, 7 * sqrt(3) cells. */
+	public static final double FAR_DISTANCE = 16.0;
+	
+	private final int dim;
+	private final int bricksPerAxis;
+	/* Per brick, the start of its cells in 'cells' or -1 for a uniform brick. */
+	private final int[] brickStart;
+	/* Per brick, the value of a uniform brick. */
+	private final float[] brickValue;
+	private final float[] cells;
+	
+	private BrickedDistanceField(int dim, int bricksPerAxis, int[] brickStart, float[] brickValue, float[] cells) {
+		this.dim = dim;
+		this.bricksPerAxis = bricksPerAxis;
+		this.brickStart = brickStart;
+		this.brickValue = brickValue;
+		this.cells = cells;
+	}
+	
+	/* Builds the bricks from any dense field. */
+	public static BrickedDistanceField fromField(DistanceField field) {
+		int dim = field.getDimension();
+		int bricksPerAxis = (dim + BRICK_MASK) >> BRICK_SHIFT;
+		int brickCount = bricksPerAxis * bricksPerAxis * bricksPerAxis;
+		int[] brickStart = new int[brickCount];
+		float[] brickValue = new float[brickCount];
+		
+		// Find the bricks that must keep their cells
+		int denseBricks = 0;
+		for (int b = 0; b < brickCount; b++) {
+			int bx = (b % bricksPerAxis) << BRICK_SHIFT;
+			int by = ((b / bricksPerAxis) % bricksPerAxis) << BRICK_SHIFT;
+			int bz = (b / (bricksPerAxis * bricksPerAxis)) << BRICK_SHIFT;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int z = bz; z < bz + BRICK_SIZE && z < dim; z++) {
+				for (int y = by; y < by + BRICK_SIZE && y < dim; y++) {
+					for (int x = bx; x < bx + BRICK_SIZE && x < dim; x++) {
+						double d = field.distance(x, y, z);
+						if (d < min) min = d;
+						if (d > max) max = d;
+					}
+				}
+			}
+			if (min >= FAR_DISTANCE) {
+				brickStart[b] = -1;
+				brickValue[b] = (float) min;
+			} else if (max <= -FAR_DISTANCE) {
+				brickStart[b] = -1;
+				brickValue[b] = (float) max;
+			} else {
+				brickStart[b] = denseBricks * BRICK_CELLS;
+				denseBricks++;
+			}
+		}
+		
+		float[] cells = new float[denseBricks * BRICK_CELLS];
+		for (int b = 0; b < brickCount; b++) {
+			if (brickStart[b] < 0)
+				continue;
+			int bx = (b % bricksPerAxis) << BRICK_SHIFT;
+			int by = ((b / bricksPerAxis) % bricksPerAxis) << BRICK_SHIFT;
+			int bz = (b / (bricksPerAxis * bricksPerAxis)) << BRICK_SHIFT;
+			for (int z = bz; z < bz + BRICK_SIZE && z < dim; z++) {
+				for (int y = by; y < by + BRICK_SIZE && y < dim; y++) {
+					for (int x = bx; x < bx + BRICK_SIZE && x < dim; x++) {
+						cells[brickStart[b] + cellIndex(x, y, z)] = (float) field.distance(x, y, z);
+					}
+				}
+			}
+		}
+		
+		return new BrickedDistanceField(dim, bricksPerAxis, brickStart, brickValue, cells);
+	}
+	
+	/* Builds the bricks of a packed cube bitmap straight from its signed distance field, one layer of bricks at a time,
+	 * without ever holding the whole field. Same bricks as fromField() on createSignedDistanceFieldFromBitmap(). Runs on
+	 * the common ForkJoinPool. */
+	public static BrickedDistanceField fromBitmap(int[] bitmap, int dim) {
+		return fromBitmap(bitmap, dim, ForkJoinPool.commonPool());
+	}
+	
+	public static BrickedDistanceField fromBitmap(int[] bitmap, int dim, ForkJoinPool pool) {
+		int bricksPerAxis = (dim + BRICK_MASK) >> BRICK_SHIFT;
+		int layerBricks = bricksPerAxis * bricksPerAxis;
+		int[] brickStart = new int[layerBricks * bricksPerAxis];
+		float[] brickValue = new float[brickStart.length];
+		// Cells of the dense bricks of each layer
+		float[][] layerCells = new float[bricksPerAxis][];
+		int[] denseBricks = { 0 };
+		pool.invoke(ForkJoinTask.adapt(() -> DistanceFieldGenerator.forEachSignedDistanceSlab(bitmap, dim, dim, dim, BRICK_SIZE, pool,
+				(planes, zStart, zEnd) -> {
+			int firstBrick = (zStart >> BRICK_SHIFT) * layerBricks;
+			
+			// Find the bricks of this layer that must keep their cells, by rows of bricks
+			DistanceFieldGenerator.forEachSlab(pool, bricksPerAxis, (start, end) -> {
+				for (int b = firstBrick + start * bricksPerAxis; b < firstBrick + end * bricksPerAxis; b++) {
+					int bx = (b % bricksPerAxis) << BRICK_SHIFT;
+					int by = ((b / bricksPerAxis) % bricksPerAxis) << BRICK_SHIFT;
+					double min = Double.POSITIVE_INFINITY;
+					double max = Double.NEGATIVE_INFINITY;
+					for (int z = zStart; z < zEnd; z++) {
+						for (int y = by; y < by + BRICK_SIZE && y < dim; y++) {
+							int row = (y + (z - zStart) * dim) * dim;
+							for (int x = bx; x < bx + BRICK_SIZE && x < dim; x++) {
+								double d = planes[row + x];
+								if (d < min) min = d;
+								if (d > max) max = d;
+							}
+						}
+					}
+					if (min >= FAR_DISTANCE) {
+						brickStart[b] = -1;
+						brickValue[b] = (float) min;
+					} else if (max <= -FAR_DISTANCE) {
+						brickStart[b] = -1;
+						brickValue[b] = (float) max;
+					} else {
+						brickStart[b] = 0;
+					}
+				}
+			});
+			
+			// Bricks are numbered in the same order as by fromField(), starts are relative to the layer until the end
+			int layerStart = denseBricks[0];
+			for (int b = firstBrick; b < firstBrick + layerBricks; b++) {
+				if (brickStart[b] == 0) {
+					brickStart[b] = (denseBricks[0]++ - layerStart) * BRICK_CELLS;
+				}
+			}
+			float[] cells = new float[(denseBricks[0] - layerStart) * BRICK_CELLS];
+			layerCells[zStart >> BRICK_SHIFT] = cells;
+			DistanceFieldGenerator.forEachSlab(pool, bricksPerAxis, (start, end) -> {
+				for (int b = firstBrick + start * bricksPerAxis; b < firstBrick + end * bricksPerAxis; b++) {
+					if (brickStart[b] < 0)
+						continue;
+					int bx = (b % bricksPerAxis) << BRICK_SHIFT;
+					int by = ((b / bricksPerAxis) % bricksPerAxis) << BRICK_SHIFT;
+					for (int z = zStart; z < zEnd; z++) {
+						for (int y = by; y < by + BRICK_SIZE && y < dim; y++) {
+							int row = (y + (z - zStart) * dim) * dim;
+							for (int x = bx; x < bx + BRICK_SIZE && x < dim; x++) {
+								cells[brickStart[b] + cellIndex(x, y, z)] = (float) planes[row + x];
+							}
+						}
+					}
+				}
+			});
+		})));
+		
+		float[] cells = new float[denseBricks[0] * BRICK_CELLS];
+		int start = 0;
+		for (int layer = 0; layer < bricksPerAxis; layer++) {
+			for (int b = layer * layerBricks; b < (layer + 1) * layerBricks; b++) {
+				if (brickStart[b] >= 0) {
+					brickStart[b] += start;
+				}
+			}
+			System.arraycopy(layerCells[layer], 0, cells, start, layerCells[layer].length);
+			start += layerCells[layer].length;
+			layerCells[layer] = null;
+		}
+		return new BrickedDistanceField(dim, bricksPerAxis, brickStart, brickValue, cells);
+	}
+	
+	private static int cellIndex(int x, int y, int z) {
+		return (x & BRICK_MASK) | ((y & BRICK_MASK) << BRICK_SHIFT) | ((z & BRICK_MASK) << (2 * BRICK_SHIFT));
+	}
+	
+	@Override
+	public double distance(int x, int y, int z) {
+		int brick = (x >> BRICK_SHIFT) + bricksPerAxis * ((y >> BRICK_SHIFT) + bricksPerAxis * (z >> BRICK_SHIFT));
+		int start = brickStart[brick];
+		if (start < 0) {
+			// Brick far from the surface, no cell data
+			return brickValue[brick];
+		}
+		return cells[start + cellIndex(x, y, z)];
+	}
+	
+	/* Fraction of bricks that store every cell. */
+	public double getDenseFraction() {
+		return cells.length / (double) BRICK_CELLS / brickStart.length;
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	@Override
+	public long getSizeBytes() {
+		return 4L * brickStart.length + 4L * brickValue.length + 4L * cells.length;
+	}
+}
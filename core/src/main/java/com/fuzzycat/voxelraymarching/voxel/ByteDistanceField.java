@@ -0,0 +1,49 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+/* 8-bit fixed-point distances with 2 fractional bits. Values are rounded down, so a ray never steps further than the
+ * exact field allows, and clamped to MAX_DISTANCE, which caps the length of a single march step. */
+public class ByteDistanceField implements DistanceField {
+	public static final double SCALE = 4.0;
+	public static final double MAX_DISTANCE = Byte.MAX_VALUE / SCALE;
+	
+	private final byte[] values;
+	private final int dim;
+	private final VoxelLayout layout;
+	
+	/* 'values' indexed by x + y * dimension + z * dimension^2, or in the order of 'layout'. */
+	public ByteDistanceField(byte[] values, int dimension) {
+		this(values, dimension, VoxelLayout.LINEAR);
+	}
+	
+	public ByteDistanceField(byte[] values, int dimension, VoxelLayout layout) {
+		this.values = values;
+		this.dim = dimension;
+		this.layout = layout;
+	}
+	
+	public static byte encode(double distance) {
+		double scaled = Math.floor(distance * SCALE);
+		if (scaled > Byte.MAX_VALUE) scaled = Byte.MAX_VALUE;
+		if (scaled < Byte.MIN_VALUE) scaled = Byte.MIN_VALUE;
+		return (byte) scaled;
+	}
+	
+	@Override
+	public double distance(int x, int y, int z) {
+		return values[layout.index(x, y, z, dim)] * (1.0 / SCALE);
+	}
+	
+	public VoxelLayout getLayout() {
+		return layout;
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	@Override
+	public long getSizeBytes() {
+		return values.length;
+	}
+}
@@ -0,0 +1,234 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+
+/* Voxel bitmap file with a header and independently compressed chunks, so chunks can be checked and decoded in parallel
+ * or read on their own. All values are big-endian:
+ *   int magic, version, width, height, depth, chunkWords, chunkCount
+ *   chunkCount times: long offset, int length, int crc32 of the chunk bytes
+ *   int crc32 of everything above
+ *   chunk data
+ * Chunk i covers bitmap words [i * chunkWords, (i + 1) * chunkWords) and is stored like a whole bitmap in the legacy
+ * format of VoxelFile.saveBitmap(): run lengths alternating between 0's and 1's, starting with 0's. Bitmap words are
+ * x + y * width + z * width * height voxel indices divided by 32, so a range of z planes maps to a range of chunks,
+ * which load() reads and checks without touching the rest of the file. VoxelFile.loadBitmap() reads both formats. */
+public class ChunkedBitmapFile {
+	public static final int MAGIC = 0x56584342; // "VXCB"
+	public static final int VERSION = 1;
+	/* 4 Mbit per chunk. */
+	public static final int DEFAULT_CHUNK_WORDS = 1 << 17;
+	private static final int HEADER_INTS = 7;
+	private static final int INDEX_ENTRY_BYTES = 16;
+	
+	/* Writes 'map' of the given dimensions, compressing chunks in parallel on the common ForkJoinPool. */
+	public static void save(String outputFilename, int[] map, int width, int height, int depth) {
+		int chunkWords = DEFAULT_CHUNK_WORDS;
+		int chunkCount = (map.length + chunkWords - 1) / chunkWords;
+		ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		pool.invoke(ForkJoinTask.adapt(() -> DistanceFieldGenerator.forEachSlab(pool, chunkCount, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				chunks[i] = encodeChunk(map, i * chunkWords, Math.min(map.length, (i + 1) * chunkWords));
+			}
+		})));
+		
+		int headerBytes = 4 * HEADER_INTS + INDEX_ENTRY_BYTES * chunkCount + 4;
+		ByteBuffer header = ByteBuffer.allocate(headerBytes);
+		header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(depth).putInt(chunkWords).putInt(chunkCount);
+		long offset = headerBytes;
+		for (ByteBuffer chunk : chunks) {
+			header.putLong(offset).putInt(chunk.remaining()).putInt(crc(chunk));
+			offset += chunk.remaining();
+		}
+		header.putInt(crc(ByteBuffer.wrap(header.array(), 0, headerBytes - 4)));
+		header.flip();
+		
+		try (FileChannel channel = FileChannel.open(new File(outputFilename).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, header);
+			for (ByteBuffer chunk : chunks) {
+				writeFully(channel, chunk);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/* Width, height and depth stored in a chunked file, or null if the file is not one. */
+	public static int[] readDimensions(String filename) {
+		try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(4 * 5);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			header.flip();
+			if (header.remaining() < header.capacity() || header.getInt() != MAGIC || header.getInt() != VERSION)
+				return null;
+			return new int[] { header.getInt(), header.getInt(), header.getInt() };
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	public static boolean isChunked(ByteBuffer file) {
+		return file.remaining() >= 4 && file.getInt(file.position()) == MAGIC;
+	}
+	
+	/* Loads z planes [zStart, zEnd) of a chunked file into a bitmap of the whole volume, leaving every other voxel 0. The
+	 * file is memory-mapped, so only the header and the chunks holding those planes are read from disk. Returns null if
+	 * the file cannot be read or fails a check. */
+	public static int[] load(String filename, int width, int height, int depth, int zStart, int zEnd) {
+		try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.READ)) {
+			return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), width, height, depth, zStart, zEnd);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	/* Decodes the whole contents of a chunked file, checking every checksum. */
+	static int[] decode(ByteBuffer file, int width, int height, int depth) throws IOException {
+		return decode(file, width, height, depth, 0, depth);
+	}
+	
+	/* Decodes z planes [zStart, zEnd) of a chunked file into a bitmap of the whole volume, leaving every other voxel 0.
+	 * Only the header and the chunks holding those planes are checked and read. Chunks are decoded in parallel on the
+	 * common ForkJoinPool, each into its own range of words. */
+	static int[] decode(ByteBuffer file, int width, int height, int depth, int zStart, int zEnd) throws IOException {
+		if (zStart < 0 || zEnd > depth || zStart > zEnd)
+			throw new IllegalArgumentException("Planes " + zStart + " to " + zEnd + " outside a depth of " + depth);
+		ByteBuffer header = file.duplicate();
+		int magic = header.getInt();
+		int version = header.getInt();
+		if (magic != MAGIC || version != VERSION)
+			throw new IOException("Unsupported voxel file version " + version);
+		int fileWidth = header.getInt(), fileHeight = header.getInt(), fileDepth = header.getInt();
+		if (fileWidth != width || fileHeight != height || fileDepth != depth)
+			throw new IOException("Voxel file is " + fileWidth + "x" + fileHeight + "x" + fileDepth + ", expected " +
+								  width + "x" + height + "x" + depth);
+		int chunkWords = header.getInt();
+		int chunkCount = header.getInt();
+		int[] map = new int[(width * height * depth + 31) / 32];
+		if (chunkWords <= 0 || chunkCount != (map.length + chunkWords - 1) / chunkWords)
+			throw new IOException("Corrupt voxel file header");
+		int indexEnd = 4 * HEADER_INTS + INDEX_ENTRY_BYTES * chunkCount;
+		ByteBuffer headerBytes = file.duplicate();
+		headerBytes.limit(headerBytes.position() + indexEnd);
+		if (crc(headerBytes) != file.getInt(file.position() + indexEnd))
+			throw new IOException("Voxel file header checksum mismatch");
+		
+		// Voxels [fromBit, toBit) are the planes asked for, with the padding bits of the last word, held by chunks
+		// [firstChunk, endChunk)
+		long planeBits = (long) width * height;
+		int fromBit = (int) (zStart * planeBits);
+		int toBit = zEnd == depth ? 32 * map.length : (int) (zEnd * planeBits);
+		int firstChunk = (fromBit >> 5) / chunkWords;
+		int endChunk = fromBit == toBit ? firstChunk : (((toBit - 1) >> 5) / chunkWords) + 1;
+		long[] offsets = new long[chunkCount];
+		int[] lengths = new int[chunkCount];
+		int[] checksums = new int[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			offsets[i] = header.getLong();
+			lengths[i] = header.getInt();
+			checksums[i] = header.getInt();
+			if (offsets[i] < indexEnd + 4 || offsets[i] + lengths[i] > file.remaining())
+				throw new IOException("Voxel file chunk " + i + " out of bounds");
+		}
+		
+		boolean[] corrupt = new boolean[chunkCount];
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		pool.invoke(ForkJoinTask.adapt(() -> DistanceFieldGenerator.forEachSlab(pool, endChunk - firstChunk, (start, end) -> {
+			for (int i = firstChunk + start; i < firstChunk + end; i++) {
+				ByteBuffer chunk = file.duplicate();
+				chunk.position(file.position() + (int) offsets[i]);
+				chunk.limit(chunk.position() + lengths[i]);
+				if (crc(chunk) != checksums[i]) {
+					corrupt[i] = true;
+					continue;
+				}
+				decodeChunk(chunk, map, i * chunkWords, Math.min(map.length, (i + 1) * chunkWords), fromBit, toBit);
+			}
+		})));
+		for (int i = firstChunk; i < endChunk; i++) {
+			if (corrupt[i])
+				throw new IOException("Voxel file chunk " + i + " checksum mismatch");
+		}
+		return map;
+	}
+	
+	/* Rewrites a legacy run-length file (see VoxelFile.saveBitmap()) of the given dimensions in this format. */
+	public static void convertLegacy(String legacyFilename, String outputFilename, int width, int height, int depth) {
+		save(outputFilename, VoxelFile.loadBitmap(legacyFilename, width, height, depth), width, height, depth);
+	}
+	
+	/* Converts legacy files: ChunkedBitmapFile <legacy file> <output file> <width> [<height> <depth>] */
+	public static void main(String[] args) {
+		if (args.length != 3 && args.length != 5) {
+			System.out.println("Usage: ChunkedBitmapFile <legacy file> <output file> <width> [<height> <depth>]");
+			return;
+		}
+		int width = Integer.parseInt(args[2]);
+		int height = args.length == 5 ? Integer.parseInt(args[3]) : width;
+		int depth = args.length == 5 ? Integer.parseInt(args[4]) : width;
+		convertLegacy(args[0], args[1], width, height, depth);
+	}
+	
+	private static ByteBuffer encodeChunk(int[] map, int startWord, int endWord) {
+		int[] runs = new int[64];
+		int count = 0;
+		long endBit = 32L * endWord;
+		long bit = 32L * startWord;
+		int value = 0;
+		while (true) {
+			long end = VoxelFile.runEnd(map, bit, endBit, value);
+			if (count == runs.length) {
+				runs = Arrays.copyOf(runs, 2 * count);
+			}
+			runs[count++] = (int) (end - bit);
+			if (end == endBit)
+				break;
+			bit = end;
+			value = value == 0 ? 1 : 0;
+		}
+		ByteBuffer chunk = ByteBuffer.allocate(4 * count);
+		chunk.asIntBuffer().put(runs, 0, count);
+		return chunk;
+	}
+	
+	/* Decodes a chunk of words [startWord, endWord), setting only the bits of its runs of 1's within [fromBit, toBit). */
+	private static void decodeChunk(ByteBuffer chunk, int[] map, int startWord, int endWord, int fromBit, int toBit) {
+		IntBuffer runs = chunk.slice().asIntBuffer();
+		long endBit = Math.min(32L * endWord, toBit);
+		long bit = 32L * startWord;
+		int value = 0;
+		while (runs.hasRemaining() && bit < endBit) {
+			long end = Math.min(bit + (runs.get() & 0xffffffffL), endBit);
+			if (value == 1) {
+				VoxelFile.fillBits(map, (int) Math.max(bit, fromBit), (int) end);
+			}
+			bit = end;
+			value = value == 0 ? 1 : 0;
+		}
+	}
+	
+	private static int crc(ByteBuffer bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes.duplicate());
+		return (int) crc.getValue();
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+/* Read access to a cube shaped signed distance field, whatever its storage. */
+public interface DistanceField {
+	/* Distance in cells from cell (x, y, z) to the closest surface cell, negative inside the model. Coordinates must be
+	 * within [0, dimension). */
+	double distance(int x, int y, int z);
+	
+	int getDimension();
+	
+	/* Memory used by the field's storage, in bytes. */
+	long getSizeBytes();
+}
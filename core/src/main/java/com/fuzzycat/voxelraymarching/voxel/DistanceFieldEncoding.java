@@ -0,0 +1,15 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+/* Storage formats for a signed distance field, see DistanceFieldGenerator.encode(). */
+public enum DistanceFieldEncoding {
+	/* 8 bytes per cell, exact. */
+	DOUBLE,
+	/* 4 bytes per cell. */
+	FLOAT,
+	/* 2 bytes per cell, 1/256 cell precision, clamped to -128..127.996 cells (raw -32768..32767). */
+	FIXED_16,
+	/* 1 byte per cell, 1/4 cell precision, clamped to -32..31.75 cells (raw -128..127, rounding down reaches -128). */
+	FIXED_8,
+	/* 8x8x8 cell bricks, floats near the surface and one value per brick elsewhere, see BrickedDistanceField. */
+	SPARSE_BRICKS
+}
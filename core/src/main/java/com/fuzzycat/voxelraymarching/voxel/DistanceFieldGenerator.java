@@ -0,0 +1,522 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class DistanceFieldGenerator {
+	
+	/* Number of slabs each pass is split into per worker, so workers that finish early can take over the rest. */
+	private static final int SLABS_PER_WORKER = 4;
+	
+	/* 'map' should be an array of two values: 0 and infinity. 0 means a solid cell and infinity means an empty cell. The returned
+	 * distance field, at each cell, will contain the distance to the closest solid cell from the original map. Runs on the
+	 * common ForkJoinPool. */
+	public static double[] createDistanceFieldFromMap(double[] map, int width, int height) {
+		return createDistanceFieldFromMap(map, width, height, ForkJoinPool.commonPool());
+	}
+	
+	/* As above, on 'pool'. Every row of a pass is independent, so each pass is split into slabs of whole planes, and each
+	 * worker thread reuses its own envelope buffers. The result does not depend on the number of workers. */
+	public static double[] createDistanceFieldFromMap(double[] map, int width, int height, ForkJoinPool pool) {
+		return pool.invoke(ForkJoinTask.adapt(() -> transform(map, width, height, pool)));
+	}
+	
+	public static double[] createSignedDistanceFieldFromMap(double[] map, int width, int height) {
+		return createSignedDistanceFieldFromMap(map, width, height, ForkJoinPool.commonPool());
+	}
+	
+	/* As above, on 'pool'. The transforms of the map and of its inverse run at the same time. */
+	public static double[] createSignedDistanceFieldFromMap(double[] map, int width, int height, ForkJoinPool pool) {
+		return pool.invoke(ForkJoinTask.adapt(() -> {
+			ForkJoinTask<double[]> outside = ForkJoinTask.adapt(() -> transform(map, width, height, pool));
+			ForkJoinTask<double[]> inside = ForkJoinTask.adapt(() -> transform(invertMap(map, pool), width, height, pool));
+			ForkJoinTask.invokeAll(outside, inside);
+			return subDistanceFields(outside.join(), inside.join(), pool);
+		}));
+	}
+	
+	/* Same result as createSignedDistanceFieldFromMap(), computed in 'map' itself, which is returned. Besides the map only
+	 * the envelope buffers are allocated, instead of four more volumes. */
+	public static double[] createSignedDistanceFieldInPlace(double[] map, int width, int height) {
+		return createSignedDistanceFieldInPlace(map, width, height, ForkJoinPool.commonPool());
+	}
+	
+	/* As above, on 'pool'. The two transforms share the array, so they run one after the other. */
+	public static double[] createSignedDistanceFieldInPlace(double[] map, int width, int height, ForkJoinPool pool) {
+		int planeSize = width * height;
+		int depth = map.length / planeSize;
+		pool.invoke(ForkJoinTask.adapt(() -> {
+			// Inside transform first: empty cells are the sources, every cell ends up with its squared distance to them
+			forEachSlab(pool, depth, (start, end) -> {
+				for (int i = start * planeSize; i < end * planeSize; i++) {
+					map[i] = map[i] == 0.0 ? Double.POSITIVE_INFINITY : 0.0;
+				}
+			});
+			squaredDistancePasses(map, width, height, pool, false, true);
+			
+			// Solid cells keep their distance negated, empty cells, the only ones at 0, become targets again
+			forEachSlab(pool, depth, (start, end) -> {
+				for (int i = start * planeSize; i < end * planeSize; i++) {
+					map[i] = map[i] == 0.0 ? Double.POSITIVE_INFINITY : -map[i];
+				}
+			});
+			
+			// Outside transform: solid cells are sources at 0 and are not overwritten
+			squaredDistancePasses(map, width, height, pool, true, true);
+			
+			forEachSlab(pool, depth, (start, end) -> {
+				for (int i = start * planeSize; i < end * planeSize; i++) {
+					map[i] = map[i] < 0.0 ? -Math.sqrt(-map[i]) : Math.sqrt(map[i]);
+				}
+			});
+		}));
+		return map;
+	}
+	
+	/* Same result as createSignedDistanceFieldInPlace() on the map VoxelFile.createDistanceMapFromBitmap() would make,
+	 * without making it. The first pass of each transform runs along x straight from the packed bitmap, skipping whole
+	 * words of non-source cells at a time. */
+	public static double[] createSignedDistanceFieldFromBitmap(int[] bitmap, int width, int height, int depth) {
+		return createSignedDistanceFieldFromBitmap(bitmap, width, height, depth, ForkJoinPool.commonPool());
+	}
+	
+	public static double[] createSignedDistanceFieldFromBitmap(int[] bitmap, int width, int height, int depth, ForkJoinPool pool) {
+		double[] distanceField = new double[width * height * depth];
+		int planeSize = width * height;
+		pool.invoke(ForkJoinTask.adapt(() -> {
+			// Inside transform, empty cells (0 bits) are the sources
+			forEachSlab(pool, depth, (start, end) -> {
+				for (int row = start * height; row < end * height; row++) {
+					rowSquaredDistanceFromBitmap(bitmap, distanceField, row * width, row * width + width, -1, false);
+				}
+			});
+			squaredDistancePasses(distanceField, width, height, pool, false, false);
+			
+			// Outside transform, solid cells (1 bits) are the sources and keep their inside distance negated
+			forEachSlab(pool, depth, (start, end) -> {
+				for (int row = start * height; row < end * height; row++) {
+					rowSquaredDistanceFromBitmap(bitmap, distanceField, row * width, row * width + width, 0, true);
+				}
+			});
+			squaredDistancePasses(distanceField, width, height, pool, true, false);
+			
+			forEachSlab(pool, depth, (start, end) -> {
+				for (int i = start * planeSize; i < end * planeSize; i++) {
+					distanceField[i] = distanceField[i] < 0.0 ? -Math.sqrt(-distanceField[i]) : Math.sqrt(distanceField[i]);
+				}
+			});
+		}));
+		return distanceField;
+	}
+	
+	interface Planes {
+		void run(double[] planes, int zStart, int zEnd);
+	}
+	
+	/* Same result as createSignedDistanceFieldFromBitmap(), handed to 'planes' up to 'slabDepth' z planes at a time, planes
+	 * [zStart, zEnd) stored in order from index 0 of its array, which is reused for the next slab. The passes run along z
+	 * first, from per column state of the closest source cells above and below the current plane, so every plane depends
+	 * only on the bitmap. Memory is a few ints per column and two slabs of doubles, instead of the whole volume. Must run
+	 * inside 'pool'. */
+	static void forEachSignedDistanceSlab(int[] bitmap, int width, int height, int depth, int slabDepth, ForkJoinPool pool,
+										  Planes planes) {
+		int planeSize = width * height;
+		// Per column, the closest solid and empty cells at or above the current plane and at or below it, -1 for none
+		// above and 'depth' for none below. -1 below is not yet searched.
+		int[] solidAbove = new int[planeSize], emptyAbove = new int[planeSize];
+		int[] solidBelow = new int[planeSize], emptyBelow = new int[planeSize];
+		Arrays.fill(solidAbove, -1);
+		Arrays.fill(emptyAbove, -1);
+		Arrays.fill(solidBelow, -1);
+		Arrays.fill(emptyBelow, -1);
+		// Inside transform, its squared distance to the closest empty cell for every solid cell, and the outside transform
+		double[] inside = new double[slabDepth * planeSize];
+		double[] outside = new double[slabDepth * planeSize];
+		int scratchSize = height > width ? height : width;
+		
+		for (int zStart = 0; zStart < depth; zStart += slabDepth) {
+			int slabStart = zStart;
+			int slabEnd = Math.min(depth, zStart + slabDepth);
+			
+			// Pass along z
+			forEachSlab(pool, height, (start, end) -> {
+				for (int z = slabStart; z < slabEnd; z++) {
+					int plane = (z - slabStart) * planeSize;
+					for (int column = start * width; column < end * width; column++) {
+						int bit = column + z * planeSize;
+						if ((bitmap[bit >> 5] >>> (bit & 31) & 1) != 0) {
+							solidAbove[column] = z;
+							if (emptyBelow[column] < z) {
+								emptyBelow[column] = nextInColumn(bitmap, column, z + 1, depth, planeSize, -1);
+							}
+							inside[plane + column] = columnSquaredDistance(z, emptyAbove[column], emptyBelow[column], depth);
+							outside[plane + column] = 0.0;
+						} else {
+							emptyAbove[column] = z;
+							if (solidBelow[column] < z) {
+								solidBelow[column] = nextInColumn(bitmap, column, z + 1, depth, planeSize, 0);
+							}
+							inside[plane + column] = 0.0;
+							outside[plane + column] = columnSquaredDistance(z, solidAbove[column], solidBelow[column], depth);
+						}
+					}
+				}
+			});
+			
+			// Passes along y then x, plane by plane
+			forEachSlab(pool, slabEnd - slabStart, (start, end) -> {
+				Envelope envelope = Envelope.get(scratchSize);
+				for (int plane = start * planeSize; plane < end * planeSize; plane += planeSize) {
+					for (double[] distanceField : new double[][] { inside, outside }) {
+						for (int x = 0; x < width; x++) {
+							rowSquaredDistance(distanceField, envelope.vertices, envelope.intersections, height, plane + x, width, false);
+						}
+						for (int row = plane; row < plane + planeSize; row += width) {
+							rowSquaredDistance(distanceField, envelope.vertices, envelope.intersections, width, row, 1, false);
+						}
+					}
+					for (int i = plane; i < plane + planeSize; i++) {
+						inside[i] = outside[i] == 0.0 ? -Math.sqrt(inside[i]) : Math.sqrt(outside[i]);
+					}
+				}
+			});
+			
+			planes.run(inside, slabStart, slabEnd);
+		}
+	}
+	
+	/* First z in [from, depth) where the bit of 'column' in 'bitmap' xor 'flip' is set, or 'depth'. */
+	private static int nextInColumn(int[] bitmap, int column, int from, int depth, int planeSize, int flip) {
+		for (int z = from; z < depth; z++) {
+			int bit = column + z * planeSize;
+			if (((bitmap[bit >> 5] ^ flip) >>> (bit & 31) & 1) != 0)
+				return z;
+		}
+		return depth;
+	}
+	
+	private static double columnSquaredDistance(int z, int above, int below, int depth) {
+		double toAbove = above < 0 ? Double.POSITIVE_INFINITY : z - above;
+		double toBelow = below == depth ? Double.POSITIVE_INFINITY : below - z;
+		double distance = toAbove < toBelow ? toAbove : toBelow;
+		return distance * distance;
+	}
+	
+	/* Squared distance along x to the closest source cell of the row of cells [start, end), sources being the bits that are
+	 * set in 'bitmap' xor 'flip'. Source cells get 0, or with 'negateSources' their current value negated. */
+	private static void rowSquaredDistanceFromBitmap(int[] bitmap, double[] distanceField, int start, int end, int flip, boolean negateSources) {
+		int previousSource = -1;
+		int i = start;
+		while (i < end) {
+			int source = nextBit(bitmap, i, end, flip);
+			for (; i < source; i++) {
+				double toPrevious = previousSource < 0 ? Double.POSITIVE_INFINITY : i - previousSource;
+				double toNext = source == end ? Double.POSITIVE_INFINITY : source - i;
+				double distance = toPrevious < toNext ? toPrevious : toNext;
+				distanceField[i] = distance * distance;
+			}
+			if (source == end)
+				break;
+			
+			// Run of source cells
+			int runEnd = nextBit(bitmap, source, end, ~flip);
+			for (; i < runEnd; i++) {
+				distanceField[i] = negateSources ? -distanceField[i] : 0.0;
+			}
+			previousSource = runEnd - 1;
+		}
+	}
+	
+	/* Index of the first bit of 'bitmap' xor 'flip' set in [from, to), or 'to'. */
+	private static int nextBit(int[] bitmap, int from, int to, int flip) {
+		int word = from >> 5;
+		int bits = (bitmap[word] ^ flip) & (-1 << (from & 31));
+		while (bits == 0) {
+			word++;
+			if (word << 5 >= to)
+				return to;
+			bits = bitmap[word] ^ flip;
+		}
+		int bit = (word << 5) + Integer.numberOfTrailingZeros(bits);
+		return bit < to ? bit : to;
+	}
+	
+	/* Must run inside 'pool', like all the steps of the transforms below. */
+	private static double[] transform(double[] map, int width, int height, ForkJoinPool pool) {
+		int depth = map.length / (width * height);
+		int planeSize = width * height;
+		double[] distanceField = new double[map.length];
+		System.arraycopy(map, 0, distanceField, 0, map.length);
+		
+		squaredDistancePasses(distanceField, width, height, pool, false, true);
+		
+		// Convert to non-squared distance field
+		forEachSlab(pool, depth, (start, end) -> {
+			for (int i = start * planeSize; i < end * planeSize; i++) {
+				distanceField[i] = Math.sqrt(distanceField[i]);
+			}
+		});
+		
+		return distanceField;
+	}
+	
+	/* Replaces every cell by its squared distance to the closest source cell, sources being cells at 0. With 'keepNegative',
+	 * negative cells are sources too and keep their value. Without 'alongX' the pass along x is left out, for callers that
+	 * already made it. */
+	private static void squaredDistancePasses(double[] distanceField, int width, int height, ForkJoinPool pool, boolean keepNegative,
+											  boolean alongX) {
+		int depth = distanceField.length / (width * height);
+		int planeSize = width * height;
+		int size = height > width ? height : width;
+		int scratchSize = depth > size ? depth : size;
+		
+		// XY plane pass
+		forEachSlab(pool, height, (start, end) -> {
+			Envelope envelope = Envelope.get(scratchSize);
+			for (int y = start; y < end; y++) {
+				for (int x = 0; x < width; x++) {
+					rowSquaredDistance(distanceField, envelope.vertices, envelope.intersections, depth, x + y * width, planeSize, keepNegative);
+				}
+			}
+		});
+		
+		// YZ plane pass
+		if (alongX) {
+			forEachSlab(pool, depth, (start, end) -> {
+				Envelope envelope = Envelope.get(scratchSize);
+				for (int z = start; z < end; z++) {
+					for (int y = 0; y < height; y++) {
+						rowSquaredDistance(distanceField, envelope.vertices, envelope.intersections, width, y * width + z * planeSize, 1, keepNegative);
+					}
+				}
+			});
+		}
+		
+		// ZX plane pass
+		forEachSlab(pool, depth, (start, end) -> {
+			Envelope envelope = Envelope.get(scratchSize);
+			for (int z = start; z < end; z++) {
+				for (int x = 0; x < width; x++) {
+					rowSquaredDistance(distanceField, envelope.vertices, envelope.intersections, height, x + z * planeSize, width, keepNegative);
+				}
+			}
+		});
+	}
+	
+	interface Slab {
+		void run(int start, int end);
+	}
+	
+	/* Buffers for rowSquaredDistance() of rows up to 'intersections.length' cells, one per thread, kept by the pool workers
+	 * from slab to slab and pass to pass. Slabs never join, so a thread runs one at a time. */
+	private static class Envelope {
+		private static final ThreadLocal<Envelope> PER_THREAD = ThreadLocal.withInitial(Envelope::new);
+		
+		double[] vertices = new double[0];
+		double[] intersections = new double[0];
+		
+		static Envelope get(int rowSize) {
+			Envelope envelope = PER_THREAD.get();
+			if (envelope.intersections.length < rowSize) {
+				envelope.vertices = new double[2 * rowSize];
+				envelope.intersections = new double[rowSize];
+			}
+			return envelope;
+		}
+	}
+	
+	/* Splits [0, count) into contiguous slabs and runs them on 'pool', which the caller runs in, returning when all are done. */
+	static void forEachSlab(ForkJoinPool pool, int count, Slab slab) {
+		int slabs = Math.min(count, SLABS_PER_WORKER * pool.getParallelism());
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[slabs];
+		for (int i = 0; i < slabs; i++) {
+			int start = (int) ((long) count * i / slabs);
+			int end = (int) ((long) count * (i + 1) / slabs);
+			tasks[i] = ForkJoinTask.adapt(() -> slab.run(start, end));
+		}
+		ForkJoinTask.invokeAll(tasks);
+	}
+
+	/* Stores a cube shaped signed distance field, as returned by createSignedDistanceFieldFromMap(), in the given encoding. */
+	public static DistanceField encode(double[] sdf, int dimension, DistanceFieldEncoding encoding) {
+		return encode(sdf, dimension, encoding, VoxelLayout.LINEAR);
+	}
+	
+	public static DistanceField encode(double[] sdf, int dimension, DistanceFieldEncoding encoding, VoxelLayout layout) {
+		if (encoding == DistanceFieldEncoding.DOUBLE && layout == VoxelLayout.LINEAR) {
+			return new DoubleDistanceField(sdf, dimension);
+		}
+		return encode(new DoubleDistanceField(sdf, dimension), encoding, layout);
+	}
+	
+	/* Copies any distance field into the given encoding. */
+	public static DistanceField encode(DistanceField field, DistanceFieldEncoding encoding) {
+		return encode(field, encoding, VoxelLayout.LINEAR);
+	}
+	
+	/* Copies any distance field into the given encoding and cell layout. SPARSE_BRICKS has its own brick layout. */
+	public static DistanceField encode(DistanceField field, DistanceFieldEncoding encoding, VoxelLayout layout) {
+		if (encoding == DistanceFieldEncoding.DOUBLE && field instanceof DoubleDistanceField &&
+			((DoubleDistanceField) field).getLayout() == layout) {
+			return field;
+		}
+		int dim = field.getDimension();
+		int length = layout.length(dim);
+		switch (encoding) {
+		case SPARSE_BRICKS:
+			return BrickedDistanceField.fromField(field);
+		case FLOAT: {
+			float[] values = new float[length];
+			for (int z = 0; z < dim; z++) {
+				for (int y = 0; y < dim; y++) {
+					for (int x = 0; x < dim; x++) {
+						values[layout.index(x, y, z, dim)] = (float) field.distance(x, y, z);
+					}
+				}
+			}
+			return new FloatDistanceField(values, dim, layout);
+		}
+		case FIXED_16: {
+			short[] values = new short[length];
+			for (int z = 0; z < dim; z++) {
+				for (int y = 0; y < dim; y++) {
+					for (int x = 0; x < dim; x++) {
+						values[layout.index(x, y, z, dim)] = ShortDistanceField.encode(field.distance(x, y, z));
+					}
+				}
+			}
+			return new ShortDistanceField(values, dim, layout);
+		}
+		case FIXED_8: {
+			byte[] values = new byte[length];
+			for (int z = 0; z < dim; z++) {
+				for (int y = 0; y < dim; y++) {
+					for (int x = 0; x < dim; x++) {
+						values[layout.index(x, y, z, dim)] = ByteDistanceField.encode(field.distance(x, y, z));
+					}
+				}
+			}
+			return new ByteDistanceField(values, dim, layout);
+		}
+		default: {
+			double[] values = new double[length];
+			for (int z = 0; z < dim; z++) {
+				for (int y = 0; y < dim; y++) {
+					for (int x = 0; x < dim; x++) {
+						values[layout.index(x, y, z, dim)] = field.distance(x, y, z);
+					}
+				}
+			}
+			return new DoubleDistanceField(values, dim, layout);
+		}
+		}
+	}
+
+	private static double[] invertMap(double[] map, ForkJoinPool pool) {
+		double[] inverted = new double[map.length];
+		forEachSlab(pool, map.length, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				if (map[i] == 0.0) {
+					inverted[i] = Double.POSITIVE_INFINITY;
+				} else {
+					inverted[i] = 0.0;
+				}
+			}
+		});
+		return inverted;
+	}
+	
+	private static double[] subDistanceFields(double[] distanceFieldA, double[] distanceFieldB, ForkJoinPool pool) {
+		double[] summed = new double[distanceFieldA.length];
+		forEachSlab(pool, distanceFieldA.length, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				summed[i] = distanceFieldA[i] - distanceFieldB[i];
+			}
+		});
+		return summed;
+	}
+	
+	// Reference for "Marching Parabolas" algorithm: https://prideout.net/blog/distance_fields/
+	private static void rowSquaredDistance(double[] distanceField, double[] envelopeVertices, double[] envelopeIntersections, int rowSize, int startIndex, int incrementIndex, boolean keepNegative) {
+		// Find and store envelope parabolas
+		int envelopeIndex = 0;
+		int envelopeIndex2 = 0;
+		int index = startIndex;
+		int startI = 0;
+		while (startI < rowSize && distanceField[index] == Double.POSITIVE_INFINITY) {
+			startI++;
+			index += incrementIndex;
+		}
+		if (startI != rowSize) {
+			envelopeIndex = 1;
+			envelopeIndex2 = 2;
+			envelopeVertices[0] = startI;
+			envelopeVertices[1] = Math.max(distanceField[index], 0.0);
+			index += incrementIndex;
+		}
+		for (int i = startI + 1; i < rowSize; i++) {
+			double parabolaX = envelopeVertices[envelopeIndex2 - 2];
+			double parabolaY = envelopeVertices[envelopeIndex2 - 1];
+			double nextParabolaX = i;
+			double nextParabolaY = Math.max(distanceField[index], 0.0);
+			if (nextParabolaY != Double.POSITIVE_INFINITY) {
+				double intersectX = intersectParabolas(parabolaX, parabolaY, nextParabolaX, nextParabolaY);
+				while (envelopeIndex >= 2 && intersectX < envelopeIntersections[envelopeIndex - 2]) {
+					envelopeIndex--;
+					envelopeIndex2 -= 2;
+					
+					parabolaX = envelopeVertices[envelopeIndex2 - 2];
+					parabolaY = envelopeVertices[envelopeIndex2 - 1];
+					intersectX = intersectParabolas(parabolaX, parabolaY, nextParabolaX, nextParabolaY);
+				}
+				envelopeVertices[envelopeIndex2] = nextParabolaX;
+				envelopeVertices[envelopeIndex2 + 1] = nextParabolaY;
+				envelopeIntersections[envelopeIndex - 1] = intersectX;
+				
+				envelopeIndex++;
+				envelopeIndex2 += 2;
+			}
+			index += incrementIndex;
+		}
+		if (envelopeIndex >= 1) {
+			envelopeIntersections[envelopeIndex - 1] = Double.POSITIVE_INFINITY;
+		}
+		int parabolaCount = envelopeIndex;
+
+		// March parabolas
+		envelopeIndex = 0;
+		envelopeIndex2 = 0;
+		double nextIntersection = envelopeIntersections[envelopeIndex];
+		index = startIndex;
+		for (int i = 0; i < rowSize; i++) {
+			if (parabolaCount > 0) {
+				while (i > nextIntersection) {
+					envelopeIndex++;
+					envelopeIndex2 += 2;
+					nextIntersection = envelopeIntersections[envelopeIndex];
+				}
+				double parabolaX = envelopeVertices[envelopeIndex2];
+				double parabolaY = envelopeVertices[envelopeIndex2 + 1];
+				if (!keepNegative || distanceField[index] > 0.0) {
+					distanceField[index] = evaluateParabola(parabolaX, parabolaY, i);
+				}
+			} else if (!keepNegative || distanceField[index] > 0.0) {
+				distanceField[index] = Double.POSITIVE_INFINITY;
+			}
+			
+			index += incrementIndex;
+		}
+	}
+	
+	// Concerns the intersection of two parabolas in the form y = (x - px)^2 + py, where (px, py) is the location of the vertex.
+	private static double intersectParabolas(double p1x, double p1y, double p2x, double p2y) {
+		return 0.5 * (p1x + p2x + (p1y - p2y) / (p1x - p2x));
+	}
+	
+	// Computes the value y(x) where y = (x - px)^2 + py
+	private static double evaluateParabola(double px, double py, double x) {
+		double xpx = x - px;
+		return xpx * xpx + py;
+	}
+}
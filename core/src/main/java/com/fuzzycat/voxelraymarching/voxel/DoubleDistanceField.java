@@ -0,0 +1,42 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+public class DoubleDistanceField implements DistanceField {
+	private final double[] values;
+	private final int dim;
+	private final VoxelLayout layout;
+	
+	/* 'values' indexed by x + y * dimension + z * dimension^2, or in the order of 'layout'. */
+	public DoubleDistanceField(double[] values, int dimension) {
+		this(values, dimension, VoxelLayout.LINEAR);
+	}
+	
+	public DoubleDistanceField(double[] values, int dimension, VoxelLayout layout) {
+		this.values = values;
+		this.dim = dimension;
+		this.layout = layout;
+	}
+	
+	@Override
+	public double distance(int x, int y, int z) {
+		return values[layout.index(x, y, z, dim)];
+	}
+	
+	/* The cells in the order of getLayout(), for callers that gather them directly. Read only. */
+	public double[] getValues() {
+		return values;
+	}
+	
+	public VoxelLayout getLayout() {
+		return layout;
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	@Override
+	public long getSizeBytes() {
+		return 8L * values.length;
+	}
+}
@@ -0,0 +1,41 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import com.fuzzycat.voxelraymarching.graphics.Vector3;
+
+public class DoubleNormalField implements NormalField {
+	private final double[] values;
+	private final int dim;
+	private final VoxelLayout layout;
+	
+	/* 'values' holds x, y, z of each normal, normals indexed by x + y * dimension + z * dimension^2
+	 * or in the order of 'layout'. */
+	public DoubleNormalField(double[] values, int dimension) {
+		this(values, dimension, VoxelLayout.LINEAR);
+	}
+	
+	public DoubleNormalField(double[] values, int dimension, VoxelLayout layout) {
+		this.values = values;
+		this.dim = dimension;
+		this.layout = layout;
+	}
+	
+	@Override
+	public void normal(int x, int y, int z, Vector3 result) {
+		int index = 3 * layout.index(x, y, z, dim);
+		result.set(values[index], values[index + 1], values[index + 2]);
+	}
+	
+	public VoxelLayout getLayout() {
+		return layout;
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	@Override
+	public long getSizeBytes() {
+		return 8L * values.length;
+	}
+}
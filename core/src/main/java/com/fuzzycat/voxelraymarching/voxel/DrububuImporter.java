@@ -0,0 +1,185 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/* Loads voxel text files from https://drububu.com/miscellaneous/voxelizer/?out=txt in parallel. The file is memory mapped
+ * once and split into chunks of bytes, each line belonging to the chunk its first byte is in, so workers only read the
+ * bytes of their own chunk plus the end of its last line. Coordinates are parsed straight from the bytes and set in the
+ * one shared bitmap with an atomic OR. Lines are accepted exactly as VoxelFile.loadDrububuTextAsBitmap() always has:
+ * the first three ", " separated fields must be integers inside the grid, anything after them is ignored and any other
+ * line is skipped. A line longer than LINE_BYTES fails the load. */
+public class DrububuImporter {
+	/* 8 MB of text, about 700k voxels, per chunk. */
+	private static final long CHUNK_BYTES = 1 << 23;
+	/* Longest line accepted, also the bytes read past the end of a chunk for its last line. */
+	private static final int LINE_BYTES = 1 << 12;
+	/* Chunks per mapping, a mapping holds at most Integer.MAX_VALUE bytes, so only files over about 2 GB need more than one. */
+	private static final int MAPPING_CHUNKS = (int) ((Integer.MAX_VALUE - LINE_BYTES - 1) / CHUNK_BYTES);
+	/* Coordinates at least this large are out of any grid, parsing saturates here. */
+	private static final long COORDINATE_LIMIT = 1L << 31;
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(int[].class);
+
+	/* Parses 'filename' on the common ForkJoinPool. */
+	public static int[] load(String filename, int width, int height, int depth) {
+		return load(filename, width, height, depth, ForkJoinPool.commonPool());
+	}
+
+	/* Returns null if the file cannot be read or has a line longer than LINE_BYTES. */
+	public static int[] load(String filename, int width, int height, int depth, ForkJoinPool pool) {
+		int[] map = new int[(width * height * depth + 31) / 32];
+		try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			int chunkCount = (int) ((size + CHUNK_BYTES - 1) / CHUNK_BYTES);
+			// Each mapping starts a byte before its first chunk and runs LINE_BYTES past its last one
+			ByteBuffer[] mappings = new ByteBuffer[(chunkCount + MAPPING_CHUNKS - 1) / MAPPING_CHUNKS];
+			for (int m = 0; m < mappings.length; m++) {
+				long mappingStart = mappingStart(m);
+				long mappingEnd = Math.min(size, (m + 1) * MAPPING_CHUNKS * CHUNK_BYTES + LINE_BYTES);
+				mappings[m] = channel.map(FileChannel.MapMode.READ_ONLY, mappingStart, mappingEnd - mappingStart);
+			}
+			pool.invoke(ForkJoinTask.adapt(() -> DistanceFieldGenerator.forEachSlab(pool, chunkCount, (start, end) -> {
+				int[] xyz = new int[3];
+				for (int i = start; i < end; i++) {
+					try {
+						parseChunk(mappings[i / MAPPING_CHUNKS], mappingStart(i / MAPPING_CHUNKS), size, i * CHUNK_BYTES,
+								   Math.min(size, (i + 1) * CHUNK_BYTES), map, width, height, depth, xyz);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			})));
+			return map;
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (UncheckedIOException e) {
+			e.getCause().printStackTrace();
+		}
+		return null;
+	}
+
+	private static long mappingStart(int mapping) {
+		return Math.max(0, mapping * MAPPING_CHUNKS * CHUNK_BYTES - 1);
+	}
+
+	/* Sets the voxels of all lines starting in bytes [start, end) of the file, 'mapping' holding the file from byte
+	 * 'mappingStart' on. */
+	private static void parseChunk(ByteBuffer mapping, long mappingStart, long size, long start, long end, int[] map,
+								   int width, int height, int depth, int[] xyz) throws IOException {
+		// Start from the byte before the chunk, the line starting at 'start' is only ours if that byte ends a line
+		long windowStart = Math.max(0, start - 1);
+		long windowEnd = Math.min(size, end + LINE_BYTES);
+		ByteBuffer window = mapping.slice((int) (windowStart - mappingStart), (int) (windowEnd - windowStart));
+		int p = 0;
+		if (start > 0) {
+			while (p < window.limit() && !isLineEnd(window.get(p))) {
+				p++;
+			}
+			p++;
+		}
+
+		while (windowStart + p < end) {
+			int eol = p;
+			while (eol < window.limit() && !isLineEnd(window.get(eol))) {
+				eol++;
+			}
+			// The window runs LINE_BYTES past the chunk, so a line it cuts off is longer than that too
+			if (eol - p > LINE_BYTES)
+				throw new IOException("Line at byte " + (windowStart + p) + " longer than " + LINE_BYTES + " bytes");
+
+			if (parseLine(window, p, eol, xyz) && xyz[0] < width && xyz[1] < height && xyz[2] < depth) {
+				int index = xyz[0] + xyz[1] * width + xyz[2] * width * height;
+				int bit = 1 << index;
+				// Voxelizer output is sorted, so workers rarely share a word and the plain read usually skips the OR
+				if ((map[index >> 5] & bit) == 0) {
+					WORDS.getAndBitwiseOr(map, index >> 5, bit);
+				}
+			}
+			// "\r\n" reads as a line and an empty line, which is skipped like any other
+			p = eol + 1;
+		}
+	}
+
+	/* Reads the non-negative "x, y, z" coordinates at the start of bytes [p, eol) into 'xyz', returns false if the line has
+	 * none. Matches String.split(", ") and Integer.parseInt() on ASCII text, values too large for an int saturate. */
+	private static boolean parseLine(ByteBuffer line, int p, int eol, int[] xyz) {
+		for (int field = 0; field < 3; field++) {
+			if (field > 0) {
+				if (!isSeparator(line, p, eol))
+					return false;
+				p += 2;
+			}
+			boolean negative = false;
+			if (p < eol && (line.get(p) == '-' || line.get(p) == '+')) {
+				negative = line.get(p) == '-';
+				p++;
+			}
+			int digitsStart = p;
+			long value = 0;
+			while (p < eol) {
+				int digit = line.get(p) - '0';
+				if (digit < 0 || digit > 9)
+					break;
+				value = Math.min(10 * value + digit, COORDINATE_LIMIT);
+				p++;
+			}
+			if (p == digitsStart || (negative && value != 0) || value == COORDINATE_LIMIT)
+				return false;
+			xyz[field] = (int) value;
+		}
+		return p == eol || isSeparator(line, p, eol);
+	}
+
+	private static boolean isSeparator(ByteBuffer line, int p, int eol) {
+		return p + 2 <= eol && line.get(p) == ',' && line.get(p + 1) == ' ';
+	}
+
+	private static boolean isLineEnd(byte b) {
+		return b == '\n' || b == '\r';
+	}
+
+	/* Converts a text export to a bitmap file in one run, optionally filling closed hollows first. */
+	public static void main(String[] args) {
+		boolean fillHollows = false;
+		boolean chunked = false;
+		int count = 0;
+		String[] positional = new String[args.length];
+		for (String arg : args) {
+			if (arg.equals("--fill-hollows")) {
+				fillHollows = true;
+			} else if (arg.equals("--chunked")) {
+				chunked = true;
+			} else {
+				positional[count++] = arg;
+			}
+		}
+		if (count != 3 && count != 5) {
+			System.out.println("Usage: DrububuImporter <text file> <output file> <width> [<height> <depth>] [--fill-hollows] [--chunked]");
+			return;
+		}
+		int width = Integer.parseInt(positional[2]);
+		int height = count == 5 ? Integer.parseInt(positional[3]) : width;
+		int depth = count == 5 ? Integer.parseInt(positional[4]) : width;
+
+		int[] map = load(positional[0], width, height, depth);
+		if (map == null) {
+			return;
+		}
+		if (fillHollows) {
+			VoxelFile.fillHollowsBitmap(map, width, height, depth);
+		}
+		if (chunked) {
+			ChunkedBitmapFile.save(positional[1], map, width, height, depth);
+		} else {
+			VoxelFile.saveBitmap(positional[1], map);
+		}
+	}
+}
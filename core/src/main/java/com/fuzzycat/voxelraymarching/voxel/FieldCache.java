@@ -0,0 +1,201 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Supplier;
+
+/* Stores the fields of a model on disk the first time it is loaded, so later runs map them instead of recomputing them.
+ * Files are named by a hash of the bitmap (or of its compressed file), its dimension and the normal delta, and hold a
+ * header followed by the distance field as floats and the normal field as octahedral ints, both little-endian in
+ * x + y * dimension + z * dimension^2 order. Cached models are read through MappedDistanceField and MappedNormalField,
+ * so the only options that can be cached are FLOAT, OCTAHEDRAL and LINEAR, see load(). */
+public class FieldCache {
+	private static final int MAGIC = 0x43465856; // "VXFC" in little-endian
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+	/* Largest single mapping of one field. */
+	private static final long MAX_SLAB_BYTES = 1L << 30;
+	
+	/* Loads a compressed cube bitmap (see VoxelFile.saveBitmap()) through the cache in 'directory', with the fields
+	 * options() gives for 'normalDelta'. */
+	public static VoxelModel load(String bitmapFile, int dimension, int normalDelta, File directory) {
+		return load(bitmapFile, dimension, options(normalDelta), directory);
+	}
+	
+	/* The key hashes the file itself, so a cached model is mapped without decoding the bitmap. */
+	public static VoxelModel load(String bitmapFile, int dimension, VoxelModel.Options options, File directory) {
+		checkOptions(options);
+		try {
+			byte[] bytes = Files.readAllBytes(new File(bitmapFile).toPath());
+			return load(key(ByteBuffer.wrap(bytes), dimension, options.normalDelta),
+						() -> VoxelFile.loadBitmap(bitmapFile, dimension, dimension, dimension), dimension, options, directory);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return load(VoxelFile.loadBitmap(bitmapFile, dimension, dimension, dimension), dimension, options, directory);
+	}
+	
+	public static VoxelModel load(int[] bitmap, int dimension, int normalDelta, File directory) {
+		return load(bitmap, dimension, options(normalDelta), directory);
+	}
+	
+	/* Maps the cached fields of 'bitmap', or builds them with 'options', stores them and maps the new file. If the cache
+	 * cannot be used the fields built in memory are returned. Throws IllegalArgumentException for options whose fields
+	 * the cache cannot hold. */
+	public static VoxelModel load(int[] bitmap, int dimension, VoxelModel.Options options, File directory) {
+		checkOptions(options);
+		ByteBuffer words = ByteBuffer.allocate(4 * bitmap.length);
+		words.asIntBuffer().put(bitmap);
+		return load(key(words, dimension, options.normalDelta), () -> bitmap, dimension, options, directory);
+	}
+	
+	/* Options of the fields the cache holds: FLOAT distances and OCTAHEDRAL normals in the LINEAR layout. */
+	public static VoxelModel.Options options(int normalDelta) {
+		VoxelModel.Options options = new VoxelModel.Options();
+		options.normalDelta = normalDelta;
+		options.sdfEncoding = DistanceFieldEncoding.FLOAT;
+		options.normalEncoding = NormalFieldEncoding.OCTAHEDRAL;
+		return options;
+	}
+	
+	private static void checkOptions(VoxelModel.Options options) {
+		if (options.sdfEncoding != DistanceFieldEncoding.FLOAT || options.normalEncoding != NormalFieldEncoding.OCTAHEDRAL ||
+			options.layout != VoxelLayout.LINEAR)
+			throw new IllegalArgumentException("The field cache only holds FLOAT, OCTAHEDRAL and LINEAR fields, not " +
+											   options.sdfEncoding + ", " + options.normalEncoding + " and " + options.layout);
+	}
+	
+	private static VoxelModel load(String key, Supplier<int[]> bitmap, int dimension, VoxelModel.Options options,
+								   File directory) {
+		File file = new File(directory, key + ".fields");
+		try {
+			if (file.isFile()) {
+				VoxelModel cached = open(file, dimension, options.normalDelta);
+				if (cached != null)
+					return cached;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		VoxelModel model = VoxelModel.fromBitmap(bitmap.get(), dimension, options);
+		try {
+			directory.mkdirs();
+			write(file, model, options.normalDelta);
+			return open(file, dimension, options.normalDelta);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return model;
+	}
+	
+	/* Hex SHA-256 of the bitmap data, the dimension, the normal delta and the file version. */
+	public static String key(ByteBuffer bitmapData, int dimension, int normalDelta) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(ByteBuffer.allocate(12).putInt(VERSION).putInt(dimension).putInt(normalDelta).flip());
+			digest.update(bitmapData);
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/* Returns null if the file does not hold fields of this dimension and delta. */
+	private static VoxelModel open(File file, int dimension, int normalDelta) throws IOException {
+		long cells = (long) dimension * dimension * dimension;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() != HEADER_BYTES + 8 * cells)
+				return null;
+			ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+			}
+			header.flip();
+			if (header.remaining() < header.capacity() || header.getInt() != MAGIC || header.getInt() != VERSION ||
+				header.getInt() != dimension || header.getInt() != normalDelta)
+				return null;
+			
+			// Mappings stay valid after the channel is closed
+			int slabShift = slabShift(dimension);
+			DistanceField sdf = new MappedDistanceField(mapPlanes(channel, HEADER_BYTES, dimension, slabShift), slabShift, dimension);
+			NormalField normals = new MappedNormalField(mapPlanes(channel, HEADER_BYTES + 4 * cells, dimension, slabShift), slabShift, dimension);
+			return new VoxelModel(dimension, sdf, normals);
+		}
+	}
+	
+	/* Writes to a temporary file first, so a cache file is either complete or absent. */
+	private static void write(File file, VoxelModel model, int normalDelta) throws IOException {
+		int dim = model.dimension;
+		OctahedralNormalField normals = (OctahedralNormalField) model.normals;
+		File temp = new File(file.getPath() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			// Zero padded to HEADER_BYTES
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(dim).putInt(normalDelta);
+			header.clear();
+			writeFully(channel, header);
+			
+			ByteBuffer buffer = ByteBuffer.allocateDirect(4 * dim * dim).order(ByteOrder.LITTLE_ENDIAN);
+			for (int field = 0; field < 2; field++) {
+				for (int z = 0; z < dim; z++) {
+					buffer.clear();
+					for (int y = 0; y < dim; y++) {
+						for (int x = 0; x < dim; x++) {
+							if (field == 0) {
+								buffer.putFloat((float) model.sdf.distance(x, y, z));
+							} else {
+								buffer.putInt(normals.packed(x, y, z));
+							}
+						}
+					}
+					buffer.flip();
+					writeFully(channel, buffer);
+				}
+			}
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+	
+	/* Log2 of the number of z planes per mapping, 4 bytes per cell. */
+	private static int slabShift(int dimension) {
+		long planeBytes = 4L * dimension * dimension;
+		int shift = 0;
+		while ((planeBytes << (shift + 1)) <= MAX_SLAB_BYTES && (1 << shift) < dimension) {
+			shift++;
+		}
+		return shift;
+	}
+	
+	/* Maps one field starting at 'offset' as read-only little-endian slabs of 2^'slabShift' z planes. */
+	private static ByteBuffer[] mapPlanes(FileChannel channel, long offset, int dimension, int slabShift) throws IOException {
+		long planeBytes = 4L * dimension * dimension;
+		int planesPerSlab = 1 << slabShift;
+		ByteBuffer[] slabs = new ByteBuffer[(dimension + planesPerSlab - 1) >> slabShift];
+		for (int i = 0; i < slabs.length; i++) {
+			int planes = Math.min(planesPerSlab, dimension - (i << slabShift));
+			slabs[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + i * planesPerSlab * planeBytes, planes * planeBytes)
+							  .order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return slabs;
+	}
+}
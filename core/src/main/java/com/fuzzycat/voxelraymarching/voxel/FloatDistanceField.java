@@ -0,0 +1,37 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+public class FloatDistanceField implements DistanceField {
+	private final float[] values;
+	private final int dim;
+	private final VoxelLayout layout;
+	
+	/* 'values' indexed by x + y * dimension + z * dimension^2, or in the order of 'layout'. */
+	public FloatDistanceField(float[] values, int dimension) {
+		this(values, dimension, VoxelLayout.LINEAR);
+	}
+	
+	public FloatDistanceField(float[] values, int dimension, VoxelLayout layout) {
+		this.values = values;
+		this.dim = dimension;
+		this.layout = layout;
+	}
+	
+	@Override
+	public double distance(int x, int y, int z) {
+		return values[layout.index(x, y, z, dim)];
+	}
+	
+	public VoxelLayout getLayout() {
+		return layout;
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	@Override
+	public long getSizeBytes() {
+		return 4L * values.length;
+	}
+}
@@ -0,0 +1,42 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/* Float distances read straight from a memory-mapped file, see FieldCache. Nothing is copied onto the heap: the operating
+ * system loads each page the first time a ray reads it. The volume is mapped in slabs of z planes, as a single mapping is
+ * limited to 2 GB. */
+public class MappedDistanceField implements DistanceField {
+	private final FloatBuffer[] slabs;
+	private final int dim, dimSq;
+	private final int slabShift, slabMask;
+	
+	/* 'slabs' hold 2^'slabShift' z planes each, the last one possibly fewer, cells indexed by
+	 * x + y * dimension + z * dimension^2 within the slab. */
+	public MappedDistanceField(ByteBuffer[] slabs, int slabShift, int dimension) {
+		this.slabs = new FloatBuffer[slabs.length];
+		for (int i = 0; i < slabs.length; i++) {
+			this.slabs[i] = slabs[i].asFloatBuffer();
+		}
+		this.dim = dimension;
+		this.dimSq = dimension * dimension;
+		this.slabShift = slabShift;
+		this.slabMask = (1 << slabShift) - 1;
+	}
+	
+	@Override
+	public double distance(int x, int y, int z) {
+		return slabs[z >> slabShift].get(x + y * dim + (z & slabMask) * dimSq);
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	/* Mapped, not on the heap. */
+	@Override
+	public long getSizeBytes() {
+		return 4L * dimSq * dim;
+	}
+}
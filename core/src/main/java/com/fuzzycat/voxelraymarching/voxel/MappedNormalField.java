@@ -0,0 +1,41 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import com.fuzzycat.voxelraymarching.graphics.Vector3;
+
+/* Octahedral normals (see OctahedralNormalField) read straight from a memory-mapped file, see FieldCache and
+ * MappedDistanceField. */
+public class MappedNormalField implements NormalField {
+	private final IntBuffer[] slabs;
+	private final int dim, dimSq;
+	private final int slabShift, slabMask;
+	
+	public MappedNormalField(ByteBuffer[] slabs, int slabShift, int dimension) {
+		this.slabs = new IntBuffer[slabs.length];
+		for (int i = 0; i < slabs.length; i++) {
+			this.slabs[i] = slabs[i].asIntBuffer();
+		}
+		this.dim = dimension;
+		this.dimSq = dimension * dimension;
+		this.slabShift = slabShift;
+		this.slabMask = (1 << slabShift) - 1;
+	}
+	
+	@Override
+	public void normal(int x, int y, int z, Vector3 result) {
+		OctahedralNormalField.decode(slabs[z >> slabShift].get(x + y * dim + (z & slabMask) * dimSq), result);
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	/* Mapped, not on the heap. */
+	@Override
+	public long getSizeBytes() {
+		return 4L * dimSq * dim;
+	}
+}
@@ -0,0 +1,15 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import com.fuzzycat.voxelraymarching.graphics.Vector3;
+
+/* Read access to a cube shaped field of surface normals, whatever its storage. */
+public interface NormalField {
+	/* Stores the unit normal at cell (x, y, z) in 'result', or the zero vector where no normal was computed. Coordinates
+	 * must be within [0, dimension). */
+	void normal(int x, int y, int z, Vector3 result);
+	
+	int getDimension();
+	
+	/* Memory used by the field's storage, in bytes. */
+	long getSizeBytes();
+}
@@ -0,0 +1,11 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+/* Storage formats for a normal field, see NormalFieldGenerator.createNormalField(). */
+public enum NormalFieldEncoding {
+	/* 3 doubles, 24 bytes per cell. */
+	DOUBLE,
+	/* Octahedral mapping to two 16-bit components in one int, 4 bytes per cell. */
+	OCTAHEDRAL,
+	/* Nothing up front, normals are computed when first hit and cached, see OnDemandNormalField. */
+	ON_DEMAND
+}
@@ -0,0 +1,172 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.fuzzycat.voxelraymarching.graphics.Vector3;
+
+public class NormalFieldGenerator {
+	/* Rays stop at the first cell closer to the surface than this (see RayMarcher), so only those cells are ever shaded. */
+	public static final double SURFACE_DISTANCE = 1.0;
+	
+	/* Every cell of the field, on the calling thread. */
+	public static double[] createNormalFieldFromSignedDistanceField(double[] sdf, int width, int height, int delta) {
+		double[] normalField = new double[3 * sdf.length];
+		generate(sdf, width, height, delta, VoxelLayout.LINEAR, normalField, null, 0, sdf.length / (width * height), false);
+		return normalField;
+	}
+	
+	/* Creates the normal field of a cube shaped signed distance field directly in the given encoding, without going
+	 * through the 3 doubles per cell representation. */
+	public static NormalField createNormalField(double[] sdf, int width, int height, int delta, NormalFieldEncoding encoding) {
+		return createNormalField(sdf, width, height, delta, encoding, VoxelLayout.LINEAR);
+	}
+	
+	/* As above, with the cells of the field stored in 'layout'. The linear 'sdf' is only read. Runs on the common
+	 * ForkJoinPool. */
+	public static NormalField createNormalField(double[] sdf, int width, int height, int delta, NormalFieldEncoding encoding,
+												VoxelLayout layout) {
+		return createNormalField(sdf, width, height, delta, encoding, layout, ForkJoinPool.commonPool());
+	}
+	
+	/* As above, on 'pool', split into slabs of z planes. Only cells closer to the surface than SURFACE_DISTANCE get a
+	 * normal, all others are left at zero. */
+	public static NormalField createNormalField(double[] sdf, int width, int height, int delta, NormalFieldEncoding encoding,
+												VoxelLayout layout, ForkJoinPool pool) {
+		if (encoding == NormalFieldEncoding.ON_DEMAND) {
+			return new OnDemandNormalField(new DoubleDistanceField(sdf, width), delta, OnDemandNormalField.DEFAULT_MAX_BRICKS);
+		}
+		int depth = sdf.length / (width * height);
+		int[] packed = encoding == NormalFieldEncoding.OCTAHEDRAL ? new int[layout.length(width)] : null;
+		double[] normalField = packed == null ? new double[3 * layout.length(width)] : null;
+		pool.invoke(ForkJoinTask.adapt(() -> DistanceFieldGenerator.forEachSlab(pool, depth,
+				(start, end) -> generate(sdf, width, height, delta, layout, normalField, packed, start, end, true))));
+		if (packed != null) {
+			return new OctahedralNormalField(packed, width, layout);
+		}
+		return new DoubleNormalField(normalField, width, layout);
+	}
+	
+	/* As above, reading any cube shaped distance field through computeNormal(), for fields never held as doubles such as
+	 * BrickedDistanceField. */
+	public static NormalField createNormalField(DistanceField sdf, int delta, NormalFieldEncoding encoding, VoxelLayout layout,
+												ForkJoinPool pool) {
+		if (encoding == NormalFieldEncoding.ON_DEMAND) {
+			return new OnDemandNormalField(sdf, delta, OnDemandNormalField.DEFAULT_MAX_BRICKS);
+		}
+		int dim = sdf.getDimension();
+		int[] packed = encoding == NormalFieldEncoding.OCTAHEDRAL ? new int[layout.length(dim)] : null;
+		double[] normalField = packed == null ? new double[3 * layout.length(dim)] : null;
+		pool.invoke(ForkJoinTask.adapt(() -> DistanceFieldGenerator.forEachSlab(pool, dim, (start, end) -> {
+			Vector3 normal = new Vector3();
+			for (int z = start; z < end; z++) {
+				for (int y = 0; y < dim; y++) {
+					for (int x = 0; x < dim; x++) {
+						int cell = layout.index(x, y, z, dim);
+						if (sdf.distance(x, y, z) >= SURFACE_DISTANCE) {
+							normal.set(0.0, 0.0, 0.0);
+						} else {
+							computeNormal(sdf, x, y, z, delta, normal);
+						}
+						if (packed != null) {
+							packed[cell] = OctahedralNormalField.encode(normal.x, normal.y, normal.z);
+						} else {
+							normalField[3 * cell] = normal.x;
+							normalField[3 * cell + 1] = normal.y;
+							normalField[3 * cell + 2] = normal.z;
+						}
+					}
+				}
+			}
+		})));
+		if (packed != null) {
+			return new OctahedralNormalField(packed, dim, layout);
+		}
+		return new DoubleNormalField(normalField, dim, layout);
+	}
+	
+	/* Computes the normal of a single cell the same way the whole field is generated, reading any distance field. */
+	public static void computeNormal(DistanceField sdf, int x, int y, int z, int delta, Vector3 result) {
+		int dim = sdf.getDimension();
+		if (x - delta < 0 || y - delta < 0 || z - delta < 0 ||
+			x + delta >= dim || y + delta >= dim || z + delta >= dim) {
+			result.set(0.0, 0.0, 0.0);
+			return;
+		}
+		double horizontal1 = sdf.distance(x + delta, y, z) - sdf.distance(x - delta, y, z);
+		double horizontal2 = sdf.distance(x, y + delta, z) - sdf.distance(x, y - delta, z);
+		double horizontal3 = sdf.distance(x, y, z + delta) - sdf.distance(x, y, z - delta);
+		
+		double diagonal1 = sdf.distance(x + delta, y + delta, z + delta) - sdf.distance(x - delta, y - delta, z - delta);
+		double diagonal2 = sdf.distance(x - delta, y + delta, z + delta) - sdf.distance(x + delta, y - delta, z - delta);
+		double diagonal3 = sdf.distance(x + delta, y - delta, z + delta) - sdf.distance(x - delta, y + delta, z - delta);
+		double diagonal4 = sdf.distance(x + delta, y + delta, z - delta) - sdf.distance(x - delta, y - delta, z + delta);
+		double diagonalX = 0.0 + diagonal1 - diagonal2 + diagonal3 + diagonal4;
+		double diagonalY = 0.0 + diagonal1 + diagonal2 - diagonal3 + diagonal4;
+		double diagonalZ = 0.0 + diagonal1 + diagonal2 + diagonal3 - diagonal4;
+		
+		result.set(horizontal1 * 0.5 + diagonalX, horizontal2 * 0.5 + diagonalY, horizontal3 * 0.5 + diagonalZ);
+		result.normalize();
+	}
+	
+	/* Fills z planes [zStart, zEnd) of either 'normalField' (3 doubles per cell) or 'packed' (octahedral, one int per cell),
+	 * cells ordered by 'layout'. Layouts other than LINEAR require a cube. With 'surfaceOnly' cells at SURFACE_DISTANCE
+	 * or more are given no normal. The arithmetic matches computeNormal(), written out on locals with the stencil offsets
+	 * hoisted. */
+	private static void generate(double[] sdf, int width, int height, int delta, VoxelLayout layout, double[] normalField, int[] packed,
+								 int zStart, int zEnd, boolean surfaceOnly) {
+		int depth = sdf.length / (width * height);
+		boolean tiled = layout == VoxelLayout.TILED;
+		int tilesPerAxis = VoxelLayout.tilesPerAxis(width);
+		int dx = 1 * delta;
+		int dy = width * delta;
+		int dz = width * height * delta;
+		int ppp = dx + dy + dz, mmm = -ppp;
+		int mpp = -dx + dy + dz, pmm = -mpp;
+		int pmp = dx - dy + dz, mpm = -pmp;
+		int ppm = dx + dy - dz, mmp = -ppm;
+		
+		Vector3 normal = new Vector3();
+		for (int z = zStart; z < zEnd; z++) {
+			for (int y = 0; y < height; y++) {
+				int sdfIndex = (y + z * height) * width;
+				for (int x = 0; x < width; x++, sdfIndex++) {
+					int cell = tiled ? VoxelLayout.tiledIndex(x, y, z, tilesPerAxis) : sdfIndex;
+					
+					if (x - delta < 0 || y - delta < 0 || z - delta < 0 ||
+						x + delta >= width || y + delta >= height || z + delta >= depth ||
+						(surfaceOnly && sdf[sdfIndex] >= SURFACE_DISTANCE)) {
+						// 'normalField' is freshly allocated, so already zero
+						if (packed != null) {
+							packed[cell] = OctahedralNormalField.ZERO;
+						}
+						continue;
+					}
+					
+					double horizontal1 = sdf[sdfIndex + dx] - sdf[sdfIndex - dx];
+					double horizontal2 = sdf[sdfIndex + dy] - sdf[sdfIndex - dy];
+					double horizontal3 = sdf[sdfIndex + dz] - sdf[sdfIndex - dz];
+					
+					double diagonal1 = sdf[sdfIndex + ppp] - sdf[sdfIndex + mmm];
+					double diagonal2 = sdf[sdfIndex + mpp] - sdf[sdfIndex + pmm];
+					double diagonal3 = sdf[sdfIndex + pmp] - sdf[sdfIndex + mpm];
+					double diagonal4 = sdf[sdfIndex + ppm] - sdf[sdfIndex + mmp];
+					double diagonalX = 0.0 + diagonal1 - diagonal2 + diagonal3 + diagonal4;
+					double diagonalY = 0.0 + diagonal1 + diagonal2 - diagonal3 + diagonal4;
+					double diagonalZ = 0.0 + diagonal1 + diagonal2 + diagonal3 - diagonal4;
+					
+					normal.set(horizontal1 * 0.5 + diagonalX, horizontal2 * 0.5 + diagonalY, horizontal3 * 0.5 + diagonalZ);
+					normal.normalize();
+					
+					if (packed != null) {
+						packed[cell] = OctahedralNormalField.encode(normal.x, normal.y, normal.z);
+					} else {
+						normalField[3 * cell] = normal.x;
+						normalField[3 * cell + 1] = normal.y;
+						normalField[3 * cell + 2] = normal.z;
+					}
+				}
+			}
+		}
+	}
+}
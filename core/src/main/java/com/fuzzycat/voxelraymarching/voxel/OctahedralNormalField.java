@@ -0,0 +1,85 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import com.fuzzycat.voxelraymarching.graphics.Vector3;
+
+/* Unit normals folded onto an octahedron and unfolded onto the square [-1, 1]^2, whose two coordinates are stored as
+ * 16-bit fixed-point halves of one int. The angular error is far below what the shading can show.
+ * Reference: "A Survey of Efficient Representations for Independent Unit Vectors", Cigolle et al. 2014 */
+public class OctahedralNormalField implements NormalField {
+	/* Outside the range used by encoded normals, marks cells with no normal. */
+	public static final int ZERO = 0x80008000;
+	private static final double SCALE = 32767.0;
+	
+	private final int[] values;
+	private final int dim;
+	private final VoxelLayout layout;
+	
+	/* 'values' indexed by x + y * dimension + z * dimension^2, or in the order of 'layout'. */
+	public OctahedralNormalField(int[] values, int dimension) {
+		this(values, dimension, VoxelLayout.LINEAR);
+	}
+	
+	public OctahedralNormalField(int[] values, int dimension, VoxelLayout layout) {
+		this.values = values;
+		this.dim = dimension;
+		this.layout = layout;
+	}
+	
+	public static int encode(double x, double y, double z) {
+		double l1 = Math.abs(x) + Math.abs(y) + Math.abs(z);
+		if (l1 == 0.0)
+			return ZERO;
+		double u = x / l1;
+		double v = y / l1;
+		if (z < 0.0) {
+			// Fold the lower half over the diagonals
+			double foldedU = (1.0 - Math.abs(v)) * (u >= 0.0 ? 1.0 : -1.0);
+			double foldedV = (1.0 - Math.abs(u)) * (v >= 0.0 ? 1.0 : -1.0);
+			u = foldedU;
+			v = foldedV;
+		}
+		int qu = (int) Math.round(u * SCALE);
+		int qv = (int) Math.round(v * SCALE);
+		return (qu & 0xffff) | (qv << 16);
+	}
+	
+	public static void decode(int packed, Vector3 result) {
+		if (packed == ZERO) {
+			result.set(0.0, 0.0, 0.0);
+			return;
+		}
+		double u = (short) packed * (1.0 / SCALE);
+		double v = (packed >> 16) * (1.0 / SCALE);
+		double z = 1.0 - Math.abs(u) - Math.abs(v);
+		if (z < 0.0) {
+			result.set((1.0 - Math.abs(v)) * (u >= 0.0 ? 1.0 : -1.0), (1.0 - Math.abs(u)) * (v >= 0.0 ? 1.0 : -1.0), z);
+		} else {
+			result.set(u, v, z);
+		}
+		result.normalize();
+	}
+	
+	@Override
+	public void normal(int x, int y, int z, Vector3 result) {
+		decode(values[layout.index(x, y, z, dim)], result);
+	}
+	
+	/* The encoded normal of a cell, see encode(). */
+	public int packed(int x, int y, int z) {
+		return values[layout.index(x, y, z, dim)];
+	}
+	
+	public VoxelLayout getLayout() {
+		return layout;
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	@Override
+	public long getSizeBytes() {
+		return 4L * values.length;
+	}
+}
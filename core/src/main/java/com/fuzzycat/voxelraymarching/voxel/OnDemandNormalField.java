@@ -0,0 +1,116 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fuzzycat.voxelraymarching.graphics.Vector3;
+
+/* Computes normals from the distance field the first time a ray hits a cell, instead of for every cell up front. Only
+ * surface cells are ever shaded, so this skips the normal pre-pass and almost all of its memory. Computed normals are
+ * kept, octahedral encoded, in 8x8x8 cell bricks in a fixed size direct-mapped cache shared by all render threads.
+ * A brick mapped to an occupied slot replaces the brick there. Races between threads only ever cost recomputation. */
+public class OnDemandNormalField implements NormalField {
+	public static final int BRICK_SHIFT = 3;
+	public static final int BRICK_SIZE = 1 << BRICK_SHIFT;
+	private static final int BRICK_MASK = BRICK_SIZE - 1;
+	/* Not produced by OctahedralNormalField.encode(). */
+	private static final int NOT_COMPUTED = 0x80000000;
+	/* 32 MB of bricks, enough for every surface brick of the shipped models. */
+	public static final int DEFAULT_MAX_BRICKS = 16384;
+	
+	private final DistanceField sdf;
+	private final int delta;
+	private final int dim;
+	private final int bricksPerAxis;
+	private final AtomicReferenceArray<Brick> slots;
+	private final int slotMask;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
+	/* 'maxBricks' is rounded up to a power of two, each brick takes 2 KB. */
+	public OnDemandNormalField(DistanceField sdf, int delta, int maxBricks) {
+		this.sdf = sdf;
+		this.delta = delta;
+		this.dim = sdf.getDimension();
+		this.bricksPerAxis = (dim + BRICK_MASK) >> BRICK_SHIFT;
+		int capacity = Integer.highestOneBit(Math.max(1, maxBricks - 1)) << 1;
+		slots = new AtomicReferenceArray<Brick>(capacity);
+		slotMask = capacity - 1;
+	}
+	
+	@Override
+	public void normal(int x, int y, int z, Vector3 result) {
+		int brickIndex = (x >> BRICK_SHIFT) + bricksPerAxis * ((y >> BRICK_SHIFT) + bricksPerAxis * (z >> BRICK_SHIFT));
+		int slot = hashSlot(brickIndex);
+		Brick brick = slots.get(slot);
+		if (brick == null || brick.index != brickIndex) {
+			brick = new Brick(brickIndex);
+			slots.set(slot, brick);
+		}
+		
+		int cell = (x & BRICK_MASK) | ((y & BRICK_MASK) << BRICK_SHIFT) | ((z & BRICK_MASK) << (2 * BRICK_SHIFT));
+		int packed = brick.normals[cell];
+		if (packed == NOT_COMPUTED) {
+			misses.increment();
+			NormalFieldGenerator.computeNormal(sdf, x, y, z, delta, result);
+			brick.normals[cell] = OctahedralNormalField.encode(result.x, result.y, result.z);
+		} else {
+			hits.increment();
+		}
+		OctahedralNormalField.decode(brick.normals[cell], result);
+	}
+	
+	private int hashSlot(int brickIndex) {
+		int h = brickIndex * 0x9e3779b9;
+		return (h ^ (h >>> 16)) & slotMask;
+	}
+	
+	/* Fraction of lookups answered from the cache since the last reset. */
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0.0 : h / (double) total;
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	/* Memory used by the bricks currently cached, plus the slot table. */
+	@Override
+	public long getSizeBytes() {
+		long bytes = 4L * slots.length();
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.get(i) != null) {
+				bytes += 4L * BRICK_SIZE * BRICK_SIZE * BRICK_SIZE;
+			}
+		}
+		return bytes;
+	}
+	
+	private static class Brick {
+		final int index;
+		final int[] normals;
+		
+		Brick(int index) {
+			this.index = index;
+			normals = new int[BRICK_SIZE * BRICK_SIZE * BRICK_SIZE];
+			Arrays.fill(normals, NOT_COMPUTED);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+/* 16-bit fixed-point distances with 8 fractional bits. Values are rounded down, so a ray never steps further than the
+ * exact field allows, and clamped to MAX_DISTANCE, which caps the length of a single march step. */
+public class ShortDistanceField implements DistanceField {
+	public static final double SCALE = 256.0;
+	public static final double MAX_DISTANCE = Short.MAX_VALUE / SCALE;
+	
+	private final short[] values;
+	private final int dim;
+	private final VoxelLayout layout;
+	
+	/* 'values' indexed by x + y * dimension + z * dimension^2, or in the order of 'layout'. */
+	public ShortDistanceField(short[] values, int dimension) {
+		this(values, dimension, VoxelLayout.LINEAR);
+	}
+	
+	public ShortDistanceField(short[] values, int dimension, VoxelLayout layout) {
+		this.values = values;
+		this.dim = dimension;
+		this.layout = layout;
+	}
+	
+	public static short encode(double distance) {
+		double scaled = Math.floor(distance * SCALE);
+		if (scaled > Short.MAX_VALUE) scaled = Short.MAX_VALUE;
+		if (scaled < Short.MIN_VALUE) scaled = Short.MIN_VALUE;
+		return (short) scaled;
+	}
+	
+	@Override
+	public double distance(int x, int y, int z) {
+		return values[layout.index(x, y, z, dim)] * (1.0 / SCALE);
+	}
+	
+	public VoxelLayout getLayout() {
+		return layout;
+	}
+	
+	@Override
+	public int getDimension() {
+		return dim;
+	}
+	
+	@Override
+	public long getSizeBytes() {
+		return 2L * values.length;
+	}
+}
@@ -0,0 +1,329 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class VoxelFile {
+	private static final int IO_BUFFER_BYTES = 1 << 16;
+	
+	public static double[] createDistanceMapFromBitmap(int[] bitmap, int width, int height, int depth) {
+		double[] map = new double[width * height * depth];
+		
+		int intIndex = 0;
+		int bitIndex = 0;
+		int distanceMapIndex = 0;
+		while (distanceMapIndex < map.length) {
+			int voxel = (bitmap[intIndex] >> bitIndex) & 1;
+			if (voxel == 0) {
+				map[distanceMapIndex] = Double.POSITIVE_INFINITY;
+			} else {
+				map[distanceMapIndex] = 0.0;
+			}
+			bitIndex++;
+			if (bitIndex == 32) {
+				bitIndex = 0;
+				intIndex++;
+			}
+			distanceMapIndex++;
+		}
+		
+		return map;
+	}
+	
+	/* Takes a voxel data text file in the format from: https://drububu.com/miscellaneous/voxelizer/?out=txt
+	 * and converts it to a bitmap representation where each voxel is either a 1 or 0. Parsed in parallel by
+	 * DrububuImporter. */
+	public static int[] loadDrububuTextAsBitmap(String filename, int width, int height, int depth) {
+		return DrububuImporter.load(filename, width, height, depth);
+	}
+	
+	/* Writes bitmap of voxels to disk in compressed format. Repetitions of 1's and 0's are counted and 
+	 * the count is saved as a single integer. Counts are big-endian and alternate between runs of 0's and 1's, starting
+	 * with 0's, and cover every bit of 'map'. Run ends are found a word at a time. */
+	public static void saveBitmap(String outputFilename, int[] map) {
+		try (FileChannel channel = FileChannel.open(new File(outputFilename).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_BYTES);
+			long totalBits = 32L * map.length;
+			long bit = 0;
+			int value = 0;
+			while (true) {
+				long end = runEnd(map, bit, totalBits, value);
+				if (!buffer.hasRemaining()) {
+					buffer.flip();
+					writeFully(channel, buffer);
+					buffer.clear();
+				}
+				buffer.putInt((int) (end - bit));
+				if (end == totalBits)
+					break;
+				bit = end;
+				value = value == 0 ? 1 : 0;
+			}
+			buffer.flip();
+			writeFully(channel, buffer);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/* Loads compressed voxel bitmap. See saveBitmap(). The file is read in one bulk read and runs of 1's are filled a word
+	 * at a time. Files in the chunked format of ChunkedBitmapFile are recognized by their header and decoded in parallel. */
+	public static int[] loadBitmap(String inputFilename, int width, int height, int depth) {
+		int[] map = new int[(width * height * depth + 31) / 32];
+		try (FileChannel channel = FileChannel.open(new File(inputFilename).toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			}
+			buffer.flip();
+			if (ChunkedBitmapFile.isChunked(buffer)) {
+				return ChunkedBitmapFile.decode(buffer, width, height, depth);
+			}
+			IntBuffer runs = buffer.asIntBuffer();
+			long totalBits = 32L * map.length;
+			long bit = 0;
+			int value = 0;
+			while (runs.hasRemaining()) {
+				long end = Math.min(bit + (runs.get() & 0xffffffffL), totalBits);
+				if (value == 1) {
+					fillBits(map, (int) bit, (int) end);
+				}
+				bit = end;
+				value = value == 0 ? 1 : 0;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return map;
+	}
+	
+	/* First bit in [bit, endBit) that is not 'value', or 'endBit', which must be a multiple of 32. */
+	static long runEnd(int[] map, long bit, long endBit, int value) {
+		int flip = value == 0 ? 0 : -1;
+		int word = (int) (bit >> 5);
+		int endWord = (int) (endBit >> 5);
+		if (word == endWord)
+			return bit;
+		int bits = (map[word] ^ flip) & (-1 << (bit & 31));
+		while (bits == 0) {
+			word++;
+			if (word == endWord)
+				return endBit;
+			bits = map[word] ^ flip;
+		}
+		return 32L * word + Integer.numberOfTrailingZeros(bits);
+	}
+	
+	/* Sets bits [from, to) of 'map'. */
+	static void fillBits(int[] map, int from, int to) {
+		if (from >= to)
+			return;
+		int first = from >> 5;
+		int last = (to - 1) >> 5;
+		int firstMask = -1 << (from & 31);
+		int lastMask = -1 >>> (31 - ((to - 1) & 31));
+		if (first == last) {
+			map[first] |= firstMask & lastMask;
+			return;
+		}
+		map[first] |= firstMask;
+		Arrays.fill(map, first + 1, last, -1);
+		map[last] |= lastMask;
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+	
+	/* Takes a rectangular voxel bitmap and pads it with 0's to be a cube shaped grid. If cubeWidth is smaller than the
+	 * longest side of the rectangular bitmap, then it is set to the longest side. */
+	public static int[] padToCubeBitmap(int[] map, int width, int height, int depth, int cubeWidth) {
+		int max = width;
+		max = max > height ? max : height;
+		max = max > depth ? max : depth;
+		if (cubeWidth < max)
+			cubeWidth = max;
+		
+		int[] newMap = new int[(cubeWidth * cubeWidth * cubeWidth + 31) / 32];
+		for (int i = 0; i < newMap.length; i++) {
+			newMap[i] = 0;
+		}
+		
+		int zStart = (cubeWidth - depth) / 2;
+		int yStart = (cubeWidth - height) / 2;
+		int xStart = (cubeWidth - width) / 2;
+		for (int z = 0; z < depth; z++) {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					int voxel = getVoxelAt(map, width, height, depth, x, y, z);
+					setVoxelAt(newMap, cubeWidth, cubeWidth, cubeWidth, 
+							x + xStart, y + yStart, z + zStart, voxel);
+				}
+			}
+		}
+		
+		return newMap;
+	}
+	
+	/* Fills all closed regions of voxel bitmap that are hollow, turning voxel shells into voxel solids. This helps
+	 * for generating signed distance fields as opposed to regular distance fields. Empty voxels that cannot be reached
+	 * from outside the grid through face adjacent empty voxels are set. */
+	public static void fillHollowsBitmap(int[] map, int width, int height, int depth) {
+		// Flood the outside from every empty voxel on the faces of the grid, a row span at a time
+		HollowFill fill = new HollowFill(map, width, height, depth);
+		for (int z = 0; z < depth; z++) {
+			for (int y = 0; y < height; y++) {
+				int line = y + z * height;
+				if (y == 0 || y == height - 1 || z == 0 || z == depth - 1) {
+					fill.pushSpans(line, 0, width - 1);
+				} else {
+					fill.pushSpans(line, 0, 0);
+					fill.pushSpans(line, width - 1, width - 1);
+				}
+			}
+		}
+		fill.flood();
+		
+		// Everything the flood did not reach is either already solid or enclosed
+		int voxels = width * height * depth;
+		int[] reached = fill.reached;
+		for (int i = 0; i < voxels >> 5; i++) {
+			map[i] |= ~reached[i];
+		}
+		if ((voxels & 31) != 0) {
+			map[voxels >> 5] |= ~reached[voxels >> 5] & ((1 << (voxels & 31)) - 1);
+		}
+	}
+	
+	/* Scanline flood fill over the empty voxels of a bitmap for fillHollowsBitmap(). Each span of a row is filled whole,
+	 * then one seed is pushed per empty span of the 4 neighbouring rows, so the stack holds row spans rather than voxels
+	 * and no voxel is visited twice. Reached voxels are kept as a second bitmap. */
+	private static class HollowFill {
+		private final int[] map;
+		private final int width, height, depth;
+		private final int[] reached;
+		private int[] stack;
+		private int size;
+		
+		private HollowFill(int[] map, int width, int height, int depth) {
+			this.map = map;
+			this.width = width;
+			this.height = height;
+			this.depth = depth;
+			reached = new int[(width * height * depth + 31) / 32];
+			stack = new int[1024];
+		}
+		
+		/* Pushes the first voxel of every open (empty and not yet reached) span within x in [x0, x1] of row 'line'. */
+		private void pushSpans(int line, int x0, int x1) {
+			int i = line * width + x0;
+			int end = line * width + x1 + 1;
+			while ((i = next(i, end, OPEN)) < end) {
+				if (size == stack.length) {
+					stack = Arrays.copyOf(stack, 2 * size);
+				}
+				stack[size++] = i;
+				i = next(i, end, BLOCKED);
+			}
+		}
+		
+		private void flood() {
+			while (size > 0) {
+				int i = stack[--size];
+				if (next(i, i + 1, OPEN) != i)
+					continue;
+				int line = i / width;
+				int base = line * width;
+				int x0 = previous(i, base, BLOCKED) + 1 - base;
+				int x1 = next(i, base + width, BLOCKED) - 1 - base;
+				fillBits(reached, base + x0, base + x1 + 1);
+				
+				int y = line % height;
+				int z = line / height;
+				if (y > 0)
+					pushSpans(line - 1, x0, x1);
+				if (y < height - 1)
+					pushSpans(line + 1, x0, x1);
+				if (z > 0)
+					pushSpans(line - height, x0, x1);
+				if (z < depth - 1)
+					pushSpans(line + height, x0, x1);
+			}
+		}
+		
+		/* Voxels that are set or reached are BLOCKED, the rest OPEN. Words of both are XORed with one of these. */
+		private static final int BLOCKED = 0, OPEN = -1;
+		
+		/* First voxel in [from, to) that is 'kind', or 'to'. */
+		private int next(int from, int to, int kind) {
+			if (from >= to)
+				return to;
+			int word = from >> 5;
+			int last = (to - 1) >> 5;
+			int bits = ((map[word] | reached[word]) ^ kind) & (-1 << (from & 31));
+			while (bits == 0) {
+				if (word == last)
+					return to;
+				word++;
+				bits = (map[word] | reached[word]) ^ kind;
+			}
+			return Math.min(to, 32 * word + Integer.numberOfTrailingZeros(bits));
+		}
+		
+		/* Last voxel in [low, from) that is 'kind', or low - 1. */
+		private int previous(int from, int low, int kind) {
+			if (from <= low)
+				return low - 1;
+			int word = (from - 1) >> 5;
+			int first = low >> 5;
+			int bits = ((map[word] | reached[word]) ^ kind) & (-1 >>> (31 - ((from - 1) & 31)));
+			while (bits == 0) {
+				if (word == first)
+					return low - 1;
+				word--;
+				bits = (map[word] | reached[word]) ^ kind;
+			}
+			return Math.max(low - 1, 32 * word + 31 - Integer.numberOfLeadingZeros(bits));
+		}
+	}
+	
+	public static int getVoxelAt(int[] map, int width, int height, int depth, int x, int y, int z) {
+		int voxelIndex = x + y * width + z * width * height;
+		int intIndex = voxelIndex / 32;
+		int bitIndex = voxelIndex % 32;
+		return (map[intIndex] >> bitIndex) & 1;
+	}
+	
+	public static void setVoxelAt(int[] map, int width, int height, int depth, int x, int y, int z, int value) {
+		int voxelIndex = x + y * width + z * width * height;
+		int intIndex = voxelIndex / 32;
+		int bitIndex = voxelIndex % 32;
+		map[intIndex] &= ~(1 << bitIndex);
+		map[intIndex] |= (value & 1) << bitIndex;
+	}
+	
+	public static int getVoxelAt2(int[] map2, int width, int height, int depth, int x, int y, int z) {
+		int voxelIndex = x + y * width + z * width * height;
+		int intIndex = voxelIndex / 16;
+		int bitIndex = 2 * (voxelIndex % 16);
+		return (map2[intIndex] >> bitIndex) & 3;
+	}
+	
+	public static void setVoxelAt2(int[] map2, int width, int height, int depth, int x, int y, int z, int value) {
+		int voxelIndex = x + y * width + z * width * height;
+		int intIndex = voxelIndex / 16;
+		int bitIndex = 2 * (voxelIndex % 16);
+		map2[intIndex] &= ~(3 << bitIndex);
+		map2[intIndex] |= (value & 3) << bitIndex;
+	}
+}
@@ -0,0 +1,42 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+/* Order of the cells of a dense cube shaped field in memory. LINEAR is x + y * dimension + z * dimension^2, so a step
+ * along z jumps dimension^2 cells. TILED stores 8x8x8 cell tiles one after another, tiles in linear order and cells in
+ * Morton (Z) order within a tile, so the cells around any point are a few cache lines apart whatever the ray direction. */
+public enum VoxelLayout {
+	LINEAR,
+	TILED;
+	
+	public static final int TILE_SHIFT = 3;
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+	
+	public static int tilesPerAxis(int dimension) {
+		return (dimension + TILE_MASK) >> TILE_SHIFT;
+	}
+	
+	/* Number of cells of a field, TILED pads the cube to whole tiles. */
+	public int length(int dimension) {
+		if (this == TILED) {
+			int tiles = tilesPerAxis(dimension);
+			return (tiles * tiles * tiles) << (3 * TILE_SHIFT);
+		}
+		return dimension * dimension * dimension;
+	}
+	
+	public int index(int x, int y, int z, int dimension) {
+		if (this == TILED) {
+			return tiledIndex(x, y, z, tilesPerAxis(dimension));
+		}
+		return x + y * dimension + z * dimension * dimension;
+	}
+	
+	public static int tiledIndex(int x, int y, int z, int tilesPerAxis) {
+		int tile = (x >> TILE_SHIFT) + tilesPerAxis * ((y >> TILE_SHIFT) + tilesPerAxis * (z >> TILE_SHIFT));
+		return (tile << (3 * TILE_SHIFT)) | spread(x & TILE_MASK) | (spread(y & TILE_MASK) << 1) | (spread(z & TILE_MASK) << 2);
+	}
+	
+	/* Moves the 3 low bits of 'v' to bits 0, 3 and 6. */
+	private static int spread(int v) {
+		return (v & 1) | ((v & 2) << 2) | ((v & 4) << 4);
+	}
+}
@@ -0,0 +1,63 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import java.util.concurrent.ForkJoinPool;
+
+/* A cube shaped voxel model ready for rendering: its signed distance field and normal field, both 'dimension' cubed cells. */
+public class VoxelModel {
+	public final int dimension;
+	public final DistanceField sdf;
+	public final NormalField normals;
+	
+	public VoxelModel(int dimension, DistanceField sdf, NormalField normals) {
+		this.dimension = dimension;
+		this.sdf = sdf;
+		this.normals = normals;
+	}
+	
+	/* How the fields of a model are built and stored. */
+	public static class Options {
+		/* Distance in cells between the distance field samples used for each normal, larger values give smoother normals. */
+		public int normalDelta = 7;
+		public DistanceFieldEncoding sdfEncoding = DistanceFieldEncoding.DOUBLE;
+		public NormalFieldEncoding normalEncoding = NormalFieldEncoding.DOUBLE;
+		/* Size of the normal cache in 8x8x8 cell bricks of 2 KB each, for NormalFieldEncoding.ON_DEMAND. */
+		public int normalCacheBricks = OnDemandNormalField.DEFAULT_MAX_BRICKS;
+		/* Cell order of the dense fields, TILED keeps neighbouring cells close in memory for every ray direction. */
+		public VoxelLayout layout = VoxelLayout.LINEAR;
+	}
+	
+	/* Loads a compressed cube bitmap (see VoxelFile.saveBitmap()) and builds its fields, stored as doubles. */
+	public static VoxelModel load(String bitmapFile, int dimension, int normalDelta) {
+		Options options = new Options();
+		options.normalDelta = normalDelta;
+		return load(bitmapFile, dimension, options);
+	}
+	
+	public static VoxelModel load(String bitmapFile, int dimension, Options options) {
+		return fromBitmap(VoxelFile.loadBitmap(bitmapFile, dimension, dimension, dimension), dimension, options);
+	}
+	
+	/* SPARSE_BRICKS is built one layer of bricks at a time and its normals read the bricks, so the signed distance field
+	 * is never held as doubles. */
+	public static VoxelModel fromBitmap(int[] bitmap, int dimension, Options options) {
+		int s = dimension;
+		if (options.sdfEncoding == DistanceFieldEncoding.SPARSE_BRICKS) {
+			DistanceField sdf = BrickedDistanceField.fromBitmap(bitmap, s);
+			NormalField normalField = options.normalEncoding == NormalFieldEncoding.ON_DEMAND
+					? new OnDemandNormalField(sdf, options.normalDelta, options.normalCacheBricks)
+					: NormalFieldGenerator.createNormalField(sdf, options.normalDelta, options.normalEncoding, options.layout,
+															 ForkJoinPool.commonPool());
+			return new VoxelModel(s, sdf, normalField);
+		}
+		double[] distanceField = DistanceFieldGenerator.createSignedDistanceFieldFromBitmap(bitmap, s, s, s);
+		DistanceField sdf = DistanceFieldGenerator.encode(distanceField, s, options.sdfEncoding, options.layout);
+		NormalField normalField;
+		if (options.normalEncoding == NormalFieldEncoding.ON_DEMAND) {
+			normalField = new OnDemandNormalField(sdf, options.normalDelta, options.normalCacheBricks);
+		} else {
+			normalField = NormalFieldGenerator.createNormalField(distanceField, s, s, options.normalDelta, options.normalEncoding,
+					options.layout);
+		}
+		return new VoxelModel(s, sdf, normalField);
+	}
+}
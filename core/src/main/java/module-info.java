@@ -0,0 +1,9 @@
+module com.fuzzycat.voxelraymarching.core {
+	// Only java.base is required, so AWT and Swing classes cannot be used by the engine. The incubating Vector API is
+	// optional, only VectorPacketMarcher reads it, when run with --add-modules jdk.incubator.vector.
+	requires static jdk.incubator.vector;
+	
+	exports com.fuzzycat.voxelraymarching.graphics;
+	exports com.fuzzycat.voxelraymarching.util;
+	exports com.fuzzycat.voxelraymarching.voxel;
+}
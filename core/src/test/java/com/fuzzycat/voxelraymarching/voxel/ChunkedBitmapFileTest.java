@@ -0,0 +1,107 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ChunkedBitmapFileTest {
+	/* Planes of 39999 bits, not whole words, and about two and a half chunks. */
+	private static final int WIDTH = 201, HEIGHT = 199, DEPTH = 260;
+
+	@TempDir
+	File directory;
+
+	@Test
+	public void savesAndDecodes() throws IOException {
+		int[] map = testBitmap();
+		String file = save(map);
+		assertArrayEquals(new int[] { WIDTH, HEIGHT, DEPTH }, ChunkedBitmapFile.readDimensions(file));
+		assertArrayEquals(map, ChunkedBitmapFile.decode(ByteBuffer.wrap(Files.readAllBytes(new File(file).toPath())),
+																WIDTH, HEIGHT, DEPTH));
+		assertArrayEquals(map, VoxelFile.loadBitmap(file, WIDTH, HEIGHT, DEPTH));
+	}
+
+	@Test
+	public void loadsARangeOfPlanes() {
+		int[] map = testBitmap();
+		String file = save(map);
+		for (int[] range : new int[][] { { 0, 1 }, { 100, 107 }, { 104, 216 }, { 259, 260 }, { 50, 50 } }) {
+			assertArrayEquals(planes(map, range[0], range[1]),
+							  ChunkedBitmapFile.load(file, WIDTH, HEIGHT, DEPTH, range[0], range[1]));
+		}
+	}
+
+	@Test
+	public void rejectsACorruptChunk() throws IOException {
+		String file = save(testBitmap());
+		// Flip a byte of the first chunk, right after the header and its index of 3 chunks
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			long offset = 4 * 7 + 16 * 3 + 4 + 5;
+			raf.seek(offset);
+			int b = raf.read();
+			raf.seek(offset);
+			raf.write(b ^ 1);
+		}
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(new File(file).toPath()));
+		assertThrows(IOException.class, () -> ChunkedBitmapFile.decode(bytes, WIDTH, HEIGHT, DEPTH));
+		assertNull(ChunkedBitmapFile.load(file, WIDTH, HEIGHT, DEPTH, 0, 10));
+		// Planes held by the other chunks still load
+		assertArrayEquals(planes(testBitmap(), 200, 260), ChunkedBitmapFile.load(file, WIDTH, HEIGHT, DEPTH, 200, 260));
+	}
+
+	@Test
+	public void rejectsOtherDimensions() throws IOException {
+		String file = save(testBitmap());
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(new File(file).toPath()));
+		assertThrows(IOException.class, () -> ChunkedBitmapFile.decode(bytes, WIDTH, HEIGHT, DEPTH - 1));
+		assertThrows(IllegalArgumentException.class, () -> ChunkedBitmapFile.decode(bytes, WIDTH, HEIGHT, DEPTH, 10, DEPTH + 1));
+	}
+
+	private String save(int[] map) {
+		String file = new File(directory, "voxels.vxc").getPath();
+		ChunkedBitmapFile.save(file, map, WIDTH, HEIGHT, DEPTH);
+		return file;
+	}
+
+	/* A ball, so most rows are a few runs, with random voxels in the planes around the first chunk edge. */
+	private static int[] testBitmap() {
+		int[] map = new int[(WIDTH * HEIGHT * DEPTH + 31) / 32];
+		Random random = new Random(5);
+		for (int z = 0; z < DEPTH; z++) {
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					double dx = x - 100, dy = y - 100, dz = z - 130;
+					boolean solid = z >= 100 && z < 110 ? random.nextBoolean() : dx * dx + dy * dy + dz * dz < 90 * 90;
+					if (solid) {
+						VoxelFile.setVoxelAt(map, WIDTH, HEIGHT, DEPTH, x, y, z, 1);
+					}
+				}
+			}
+		}
+		return map;
+	}
+
+	/* 'map' with every voxel outside z planes [zStart, zEnd) cleared. */
+	private static int[] planes(int[] map, int zStart, int zEnd) {
+		int[] result = new int[map.length];
+		for (int z = zStart; z < zEnd; z++) {
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					int v = VoxelFile.getVoxelAt(map, WIDTH, HEIGHT, DEPTH, x, y, z);
+					VoxelFile.setVoxelAt(result, WIDTH, HEIGHT, DEPTH, x, y, z, v);
+				}
+			}
+		}
+		return result;
+	}
+}
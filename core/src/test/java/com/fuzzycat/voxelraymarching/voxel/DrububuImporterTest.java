@@ -0,0 +1,65 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DrububuImporterTest {
+
+	@TempDir
+	File directory;
+
+	@Test
+	public void parsesLinesLikeTheOldLoader() throws IOException {
+		String text = "1, 2, 3\n" +
+					  "0, 0, 0, 255, 128, 0\r\n" +
+					  "\n" +
+					  "-0, +1, 03\n" +
+					  "x, 1, 2\n" +
+					  "1,2,3\n" +
+					  "4, 0, 0\n" +
+					  "-1, 0, 0\n" +
+					  "3, 3, 3";
+		int[] expected = new int[(4 * 4 * 4 + 31) / 32];
+		VoxelFile.setVoxelAt(expected, 4, 4, 4, 1, 2, 3, 1);
+		VoxelFile.setVoxelAt(expected, 4, 4, 4, 0, 0, 0, 1);
+		VoxelFile.setVoxelAt(expected, 4, 4, 4, 0, 1, 3, 1);
+		VoxelFile.setVoxelAt(expected, 4, 4, 4, 3, 3, 3, 1);
+		assertArrayEquals(expected, DrububuImporter.load(write(text), 4, 4, 4));
+	}
+
+	/* Enough lines for several chunks, so lines straddle the chunk edges. */
+	@Test
+	public void parsesAcrossChunks() throws IOException {
+		int dimension = 64;
+		int[] expected = new int[(dimension * dimension * dimension + 31) / 32];
+		StringBuilder text = new StringBuilder();
+		Random random = new Random(1);
+		for (int i = 0; i < 2_000_000; i++) {
+			int x = random.nextInt(dimension), y = random.nextInt(dimension), z = random.nextInt(dimension);
+			VoxelFile.setVoxelAt(expected, dimension, dimension, dimension, x, y, z, 1);
+			text.append(x).append(", ").append(y).append(", ").append(z).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		assertArrayEquals(expected, DrububuImporter.load(write(text.toString()), dimension, dimension, dimension));
+	}
+
+	@Test
+	public void failsOnOverlongLines() throws IOException {
+		String text = "1, 1, 1\n1, 2, 3, " + "0".repeat(1 << 13) + "\n2, 2, 2\n";
+		assertNull(DrububuImporter.load(write(text), 4, 4, 4));
+	}
+
+	private String write(String text) throws IOException {
+		File file = new File(directory, "voxels.txt");
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+		return file.getPath();
+	}
+}
@@ -0,0 +1,90 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fuzzycat.voxelraymarching.graphics.Vector3;
+
+public class FieldCacheTest {
+
+	@TempDir
+	File directory;
+
+	@Test
+	public void mapsTheFieldsItWrote() {
+		int dimension = 20;
+		int[] bitmap = randomBitmap(dimension, 1);
+		VoxelModel built = VoxelModel.fromBitmap(bitmap, dimension, FieldCache.options(3));
+
+		VoxelModel written = FieldCache.load(bitmap, dimension, 3, directory);
+		VoxelModel mapped = FieldCache.load(bitmap, dimension, 3, directory);
+		assertTrue(mapped.sdf instanceof MappedDistanceField);
+		assertEquals(1, directory.listFiles().length);
+		assertSameFields(built, written);
+		assertSameFields(built, mapped);
+	}
+
+	/* Fewer cells than the header has bytes. */
+	@Test
+	public void writesModelsSmallerThanTheHeader() {
+		for (int dimension = 1; dimension < 4; dimension++) {
+			int[] bitmap = randomBitmap(dimension, dimension);
+			VoxelModel built = VoxelModel.fromBitmap(bitmap, dimension, FieldCache.options(1));
+			VoxelModel cached = FieldCache.load(bitmap, dimension, 1, directory);
+			assertTrue(cached.sdf instanceof MappedDistanceField);
+			assertSameFields(built, cached);
+		}
+	}
+
+	@Test
+	public void keysOnTheNormalDelta() {
+		int[] bitmap = randomBitmap(12, 2);
+		FieldCache.load(bitmap, 12, 1, directory);
+		FieldCache.load(bitmap, 12, 2, directory);
+		assertEquals(2, directory.listFiles().length);
+	}
+
+	@Test
+	public void rejectsFieldsItCannotHold() {
+		VoxelModel.Options options = FieldCache.options(1);
+		options.sdfEncoding = DistanceFieldEncoding.DOUBLE;
+		assertThrows(IllegalArgumentException.class, () -> FieldCache.load(new int[1], 2, options, directory));
+		VoxelModel.Options tiled = FieldCache.options(1);
+		tiled.layout = VoxelLayout.TILED;
+		assertThrows(IllegalArgumentException.class, () -> FieldCache.load(new int[1], 2, tiled, directory));
+	}
+
+	static int[] randomBitmap(int dimension, long seed) {
+		int[] bitmap = new int[(dimension * dimension * dimension + 31) / 32];
+		Random random = new Random(seed);
+		for (int i = 0; i < bitmap.length; i++) {
+			bitmap[i] = random.nextInt();
+		}
+		return bitmap;
+	}
+
+	private static void assertSameFields(VoxelModel expected, VoxelModel actual) {
+		int dimension = expected.dimension;
+		Vector3 expectedNormal = new Vector3();
+		Vector3 actualNormal = new Vector3();
+		for (int z = 0; z < dimension; z++) {
+			for (int y = 0; y < dimension; y++) {
+				for (int x = 0; x < dimension; x++) {
+					assertEquals(expected.sdf.distance(x, y, z), actual.sdf.distance(x, y, z));
+					expected.normals.normal(x, y, z, expectedNormal);
+					actual.normals.normal(x, y, z, actualNormal);
+					assertEquals(expectedNormal.x, actualNormal.x);
+					assertEquals(expectedNormal.y, actualNormal.y);
+					assertEquals(expectedNormal.z, actualNormal.z);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class HollowFillTest {
+
+	@Test
+	public void fillsAClosedShell() {
+		int s = 40;
+		int[] shell = new int[(s * s * s + 31) / 32];
+		int[] ball = new int[shell.length];
+		for (int z = 0; z < s; z++) {
+			for (int y = 0; y < s; y++) {
+				for (int x = 0; x < s; x++) {
+					double dx = x - 19.5, dy = y - 19.5, dz = z - 19.5;
+					double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+					VoxelFile.setVoxelAt(shell, s, s, s, x, y, z, r <= 16 && r >= 12 ? 1 : 0);
+					VoxelFile.setVoxelAt(ball, s, s, s, x, y, z, r <= 16 ? 1 : 0);
+				}
+			}
+		}
+		VoxelFile.fillHollowsBitmap(shell, s, s, s);
+		assertArrayEquals(ball, shell);
+	}
+
+	/* A box with one open face keeps its cavity. */
+	@Test
+	public void leavesAnOpenCavity() {
+		int s = 20;
+		int[] box = new int[(s * s * s + 31) / 32];
+		for (int z = 2; z < 18; z++) {
+			for (int y = 2; y < 18; y++) {
+				for (int x = 2; x < 18; x++) {
+					boolean wall = x == 2 || x == 17 || y == 2 || y == 17 || z == 2;
+					VoxelFile.setVoxelAt(box, s, s, s, x, y, z, wall ? 1 : 0);
+				}
+			}
+		}
+		int[] filled = box.clone();
+		VoxelFile.fillHollowsBitmap(filled, s, s, s);
+		assertArrayEquals(box, filled);
+		// Closing the last face encloses the cavity
+		for (int y = 2; y < 18; y++) {
+			for (int x = 2; x < 18; x++) {
+				VoxelFile.setVoxelAt(box, s, s, s, x, y, 17, 1);
+			}
+		}
+		VoxelFile.fillHollowsBitmap(box, s, s, s);
+		assertEquals(1, VoxelFile.getVoxelAt(box, s, s, s, 9, 9, 9));
+	}
+
+	/* Random volumes, with rows that are not whole words, against a plain breadth first flood from the faces. */
+	@Test
+	public void matchesAFloodFill() {
+		Random random = new Random(7);
+		int[][] sizes = { { 37, 29, 23 }, { 64, 5, 9 }, { 1, 1, 1 }, { 33, 33, 33 } };
+		for (int[] size : sizes) {
+			for (double density : new double[] { 0.3, 0.6, 0.75 }) {
+				int width = size[0], height = size[1], depth = size[2];
+				int[] map = new int[(width * height * depth + 31) / 32];
+				for (int z = 0; z < depth; z++) {
+					for (int y = 0; y < height; y++) {
+						for (int x = 0; x < width; x++) {
+							VoxelFile.setVoxelAt(map, width, height, depth, x, y, z, random.nextDouble() < density ? 1 : 0);
+						}
+					}
+				}
+				int[] expected = floodFill(map, width, height, depth);
+				VoxelFile.fillHollowsBitmap(map, width, height, depth);
+				assertArrayEquals(expected, map);
+			}
+		}
+	}
+
+	private static int[] floodFill(int[] map, int width, int height, int depth) {
+		boolean[] outside = new boolean[width * height * depth];
+		ArrayDeque<int[]> queue = new ArrayDeque<>();
+		for (int z = 0; z < depth; z++) {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (x == 0 || y == 0 || z == 0 || x == width - 1 || y == height - 1 || z == depth - 1) {
+						visit(map, outside, queue, width, height, depth, x, y, z);
+					}
+				}
+			}
+		}
+		int[][] steps = { { 1, 0, 0 }, { -1, 0, 0 }, { 0, 1, 0 }, { 0, -1, 0 }, { 0, 0, 1 }, { 0, 0, -1 } };
+		while (!queue.isEmpty()) {
+			int[] v = queue.poll();
+			for (int[] step : steps) {
+				visit(map, outside, queue, width, height, depth, v[0] + step[0], v[1] + step[1], v[2] + step[2]);
+			}
+		}
+		int[] filled = map.clone();
+		for (int z = 0; z < depth; z++) {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (!outside[x + (y + z * height) * width]) {
+						VoxelFile.setVoxelAt(filled, width, height, depth, x, y, z, 1);
+					}
+				}
+			}
+		}
+		return filled;
+	}
+
+	private static void visit(int[] map, boolean[] outside, ArrayDeque<int[]> queue, int width, int height, int depth,
+							  int x, int y, int z) {
+		if (x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= depth)
+			return;
+		int i = x + (y + z * height) * width;
+		if (outside[i] || VoxelFile.getVoxelAt(map, width, height, depth, x, y, z) != 0)
+			return;
+		outside[i] = true;
+		queue.add(new int[] { x, y, z });
+	}
+}
@@ -0,0 +1,56 @@
+package com.fuzzycat.voxelraymarching.voxel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class VoxelFileTest {
+
+	@TempDir
+	File directory;
+
+	/* Runs of 0's and 1's as big-endian ints, starting with 0's. */
+	@Test
+	public void writesRunLengths() throws IOException {
+		String file = new File(directory, "runs.bin").getPath();
+		VoxelFile.saveBitmap(file, new int[] { 0x0000ff00, -1 });
+		ByteBuffer expected = ByteBuffer.allocate(16).putInt(8).putInt(8).putInt(16).putInt(32);
+		assertArrayEquals(expected.array(), Files.readAllBytes(new File(file).toPath()));
+		assertArrayEquals(new int[] { 0x0000ff00, -1 }, VoxelFile.loadBitmap(file, 4, 4, 4));
+	}
+
+	/* More runs than one write buffer holds. */
+	@Test
+	public void roundTripsRandomBitmaps() {
+		Random random = new Random(3);
+		for (int dimension : new int[] { 1, 7, 33, 64 }) {
+			int[] map = new int[(dimension * dimension * dimension + 31) / 32];
+			for (int i = 0; i < map.length; i++) {
+				map[i] = random.nextInt();
+			}
+			roundTrip(map, dimension);
+		}
+	}
+
+	@Test
+	public void roundTripsUniformBitmaps() {
+		roundTrip(new int[1024], 32);
+		int[] solid = new int[1024];
+		Arrays.fill(solid, -1);
+		roundTrip(solid, 32);
+	}
+
+	private void roundTrip(int[] map, int dimension) {
+		String file = new File(directory, "voxels.bin").getPath();
+		VoxelFile.saveBitmap(file, map);
+		assertArrayEquals(map, VoxelFile.loadBitmap(file, dimension, dimension, dimension));
+	}
+}
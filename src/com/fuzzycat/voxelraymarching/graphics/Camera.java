@@ -1,11 +0,0 @@
-package com.fuzzycat.voxelraymarching.graphics;
-
-public class Camera {
-	public int width;
-	public int height;
-	public double fov;
-	public Vector3[] rays;
-	public Vector3 position;
-	public double yaw;
-	public double pitch;
-}
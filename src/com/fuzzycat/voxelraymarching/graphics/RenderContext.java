@@ -1,12 +0,0 @@
-package com.fuzzycat.voxelraymarching.graphics;
-
-public class RenderContext {
-	public double[] sdf;
-	public double[] normals;
-	public int voxelsDimension;
-	public int[] photoSphereColor;
-	public int photoSphereHeight; 
-	public double diffuseSpecularRatio;
-	public int diffuseColor;
-	public int[] screenPixels;
-}
@@ -0,0 +1,70 @@
+package com.fuzzycat.voxelraymarching;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import com.fuzzycat.voxelraymarching.graphics.PhotoSphere;
+
+/* Image reading and writing for packed 0xRRGGBB pixel arrays. Works without a display, ImageIO does not need one. */
+public class ImageFiles {
+
+	/* Loads an image and converts it to TYPE_INT_RGB so its pixels can be used directly as a packed int array. */
+	public static BufferedImage loadRGB(String filename) {
+		BufferedImage image = null;
+		try {
+			image = ImageIO.read(new File(filename));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = rgb.createGraphics();
+		graphics.drawImage(image, 0, 0, null);
+		graphics.dispose();
+		return rgb;
+	}
+
+	public static PhotoSphere loadPhotoSphere(String filename) {
+		BufferedImage rgb = loadRGB(filename);
+		return new PhotoSphere(getPixels(rgb), rgb.getWidth(), rgb.getHeight());
+	}
+
+	public static int[] getPixels(BufferedImage rgb) {
+		return ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+	}
+
+	public static void writePNG(String filename, int[] pixels, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		System.arraycopy(pixels, 0, getPixels(image), 0, width * height);
+		try {
+			ImageIO.write(image, "png", new File(filename));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/* Writes 3 bytes per pixel (R, G, B), rows top to bottom, with no header. */
+	public static void writeRaw(String filename, int[] pixels, int width, int height) {
+		byte[] rgb = new byte[3 * width * height];
+		for (int i = 0, j = 0; i < width * height; i++, j += 3) {
+			int pixel = pixels[i];
+			rgb[j] = (byte) (pixel >> 16);
+			rgb[j + 1] = (byte) (pixel >> 8);
+			rgb[j + 2] = (byte) pixel;
+		}
+		try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(new File(filename)))) {
+			bos.write(rgb);
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
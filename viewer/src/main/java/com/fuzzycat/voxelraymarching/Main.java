@@ -4,7 +4,6 @@ import java.awt.AWTException;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.MouseInfo;
 import java.awt.Point;
 import java.awt.Robot;
@@ -18,29 +17,34 @@ import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
 import java.io.File;
-import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 
-import javax.imageio.ImageIO;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
 import com.fuzzycat.voxelraymarching.graphics.Camera;
+import com.fuzzycat.voxelraymarching.graphics.CameraPath;
+import com.fuzzycat.voxelraymarching.graphics.DynamicResolution;
+import com.fuzzycat.voxelraymarching.graphics.FrameBuffer;
+import com.fuzzycat.voxelraymarching.graphics.Material;
+import com.fuzzycat.voxelraymarching.graphics.PhotoSphere;
 import com.fuzzycat.voxelraymarching.graphics.Render;
 import com.fuzzycat.voxelraymarching.graphics.RenderContext;
-import com.fuzzycat.voxelraymarching.graphics.Vector3;
+import com.fuzzycat.voxelraymarching.graphics.Scene;
+import com.fuzzycat.voxelraymarching.util.CommandLine;
 import com.fuzzycat.voxelraymarching.util.MathUtil;
-import com.fuzzycat.voxelraymarching.voxel.DistanceFieldGenerator;
-import com.fuzzycat.voxelraymarching.voxel.NormalFieldGenerator;
-import com.fuzzycat.voxelraymarching.voxel.VoxelFile;
+import com.fuzzycat.voxelraymarching.util.Timings;
+import com.fuzzycat.voxelraymarching.voxel.FieldCache;
+import com.fuzzycat.voxelraymarching.voxel.VoxelModel;
 
 public class Main extends JPanel implements Runnable, KeyListener, MouseListener, MouseWheelListener {
 	
 	private static final int WIDTH = 800;
 	private static final int HEIGHT = 700;
+	private static final String FIELD_CACHE_DIRECTORY = "field_cache";
 	
 	private JFrame frame;
 	private boolean close;
@@ -49,7 +53,6 @@ public class Main extends JPanel implements Runnable, KeyListener, MouseListener
 	
 	private Render render;
 	private BufferedImage screenPixels;
-	private BufferedImage photoSphereColor;
 	private RenderContext renderContext;
 	
 	private Robot mouse;
@@ -57,6 +60,11 @@ public class Main extends JPanel implements Runnable, KeyListener, MouseListener
 	private Cursor noCursor;
 	private int zoom;
 	
+	private CameraPath recordPath;
+	private String recordFile;
+	private CameraPath replayPath;
+	private double targetFrameMs;
+	
 	public Main() {
 		close = false;
 		
@@ -96,81 +104,81 @@ public class Main extends JPanel implements Runnable, KeyListener, MouseListener
 	 * See "VoxelFile.java" to create your own voxel models
 	 */
 	public void beginLoop() {
-		int s = 330;
-		int[] voxelMap = VoxelFile.loadBitmap("skull_330x.bin", s, s, s);
-		double[] distanceField = DistanceFieldGenerator.createSignedDistanceFieldFromMap(VoxelFile.createDistanceMapFromBitmap(voxelMap, s, s, s), s, s);
-		double[] normalField = NormalFieldGenerator.createNormalFieldFromSignedDistanceField(distanceField, s, s, 7);
+		// Fields are computed on the first run only, later runs map them from the cache
+		VoxelModel model = FieldCache.load("skull_330x.bin", 330, 7, new File(FIELD_CACHE_DIRECTORY));
+		PhotoSphere photoSphere = ImageFiles.loadPhotoSphere("beach_blurred_1.png");
+		Material material = new Material(0.3, 0xffffff);
 		
 		numFrames = 0;
 		startTime = System.nanoTime();
 		
-		// Change number of threads to suit your CPU capabilities
-		render = new Render(WIDTH, HEIGHT, 60.0, 12);
+		render = new Render(WIDTH, HEIGHT, 60.0);
+		if (targetFrameMs > 0.0) {
+			render.setDynamicResolution(new DynamicResolution((long) (targetFrameMs * 1.0e6)));
+		}
 		zoom = 0;
 		screenPixels = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
 		
-		BufferedImage photoSphereImage = null;
-		try {
-			photoSphereImage = ImageIO.read(new File("beach_blurred_1.png"));
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		photoSphereColor = new BufferedImage(photoSphereImage.getWidth(), photoSphereImage.getHeight(), BufferedImage.TYPE_INT_RGB);
-		Graphics2D photoSphereGraphics = photoSphereColor.createGraphics();
-		photoSphereGraphics.drawImage(photoSphereImage, 0, 0, null);
-		photoSphereGraphics.dispose();
-		
-		int[] photoSphereData = ((DataBufferInt) photoSphereColor.getRaster().getDataBuffer()).getData();
-		int[] screenData = ((DataBufferInt) screenPixels.getRaster().getDataBuffer()).getData();
-		renderContext = new RenderContext();
-		renderContext.photoSphereColor = photoSphereData;
-		renderContext.photoSphereHeight = photoSphereColor.getHeight();
-		renderContext.screenPixels = screenData;
-		renderContext.sdf = distanceField;
-		renderContext.normals = normalField;
-		renderContext.diffuseSpecularRatio = 0.3;
-		renderContext.diffuseColor = 0xffffff;
-		renderContext.voxelsDimension = s;
+		FrameBuffer frameBuffer = new FrameBuffer(WIDTH, HEIGHT, ImageFiles.getPixels(screenPixels));
+		renderContext = new Scene(model, photoSphere, material).createContext(frameBuffer);
 		
 		render.begin();
 		
-		try {
-			mouse = new Robot();
-			mouse.mouseMove(frame.getX() + WIDTH / 2, frame.getY() + HEIGHT / 2);
-			mouseLook = true;
-		} catch (AWTException e) {
-			e.printStackTrace();
+		if (replayPath == null) {
+			try {
+				mouse = new Robot();
+				mouse.mouseMove(frame.getX() + WIDTH / 2, frame.getY() + HEIGHT / 2);
+				mouseLook = true;
+			} catch (AWTException e) {
+				e.printStackTrace();
+			}
 		}
 		
+		int replayFrame = 0;
+		long[] frameTimes = replayPath != null ? new long[replayPath.size()] : null;
 		while (!close) {
-			int mx = MouseInfo.getPointerInfo().getLocation().x;
-			int my = MouseInfo.getPointerInfo().getLocation().y;
-			if (mouseLook && frame.hasFocus()) {
+			if (replayPath != null) {
+				// Replay recorded poses without any input
+				if (replayFrame == replayPath.size())
+					break;
+				replayPath.apply(replayFrame, render.getCamera());
+				zoom = replayPath.getZoom(replayFrame);
+			} else if (mouseLook && frame.hasFocus()) {
+				int mx = MouseInfo.getPointerInfo().getLocation().x;
+				int my = MouseInfo.getPointerInfo().getLocation().y;
 				Camera cam = render.getCamera();
 				cam.yaw += 0.002 * (WIDTH / 2 - (mx - frame.getX()));
 				cam.pitch += 0.002 * (HEIGHT / 2 - (my - frame.getY()));
 				if (cam.pitch < -MathUtil.PI_2) cam.pitch = -MathUtil.PI_2;
 				if (cam.pitch > MathUtil.PI_2) cam.pitch = MathUtil.PI_2;
-				cam.position.set(new Vector3(0.0, 0.0, 0.9 * Math.pow(1.2, zoom / 2)));
-				cam.position.rotateYZ(cam.pitch);
-				cam.position.rotateZX(cam.yaw);
-				cam.position.x += 0.5;
-				cam.position.y += 0.5;
-				cam.position.z += 0.5;
+				cam.orbit(cam.yaw, cam.pitch, 0.9 * Math.pow(1.2, zoom / 2));
 				mouse.mouseMove(frame.getX() + WIDTH / 2, frame.getY() + HEIGHT / 2);
 				frame.getContentPane().setCursor(noCursor);
 			} else {
 				frame.getContentPane().setCursor(null);
 			}
 			
+			long frameStart = System.nanoTime();
 			synchronized (render) {
 				render.rayMarchVoxels(renderContext);
 			}
+			long frameTime = System.nanoTime() - frameStart;
+			if (replayPath != null) {
+				frameTimes[replayFrame++] = frameTime;
+			} else if (recordPath != null) {
+				recordPath.record(render.getCamera(), zoom);
+			}
 			repaint();
 
 			numFrames++;
 			if (System.nanoTime() - startTime > 1000000000) {
-				System.out.println((int) (numFrames / ((System.nanoTime() - startTime) / 1.0e9)));
+				int fps = (int) (numFrames / ((System.nanoTime() - startTime) / 1.0e9));
+				DynamicResolution dynamicResolution = render.getDynamicResolution();
+				if (dynamicResolution != null) {
+					System.out.println(fps + " (" + (int) Math.round(100.0 * dynamicResolution.getScale()) + "% resolution)");
+				} else {
+					System.out.println(fps);
+				}
 				startTime = System.nanoTime();
 				numFrames = 0;
 			}
@@ -183,6 +191,14 @@ public class Main extends JPanel implements Runnable, KeyListener, MouseListener
 		}
 		
 		render.end();
+		if (recordPath != null) {
+			recordPath.save(recordFile);
+			System.out.println("Recorded " + recordPath.size() + " frames to " + recordFile);
+		}
+		if (replayPath != null && replayFrame > 0) {
+			long[] replayed = Arrays.copyOf(frameTimes, replayFrame);
+			System.out.println("Replayed " + replayFrame + " frames, frame time: " + Timings.distribution(replayed));
+		}
 		frame.setVisible(false);
 		frame.dispose();
 	}
@@ -209,8 +225,20 @@ public class Main extends JPanel implements Runnable, KeyListener, MouseListener
 		frame.setVisible(true);
 	}
 	
+	/* "--record path.txt" saves the camera pose of every frame, "--replay path.txt" renders those poses again
+	 * without input and prints a frame time report at the end. "--target-ms 16" lowers the resolution of expensive
+	 * views to hold that frame time. */
 	public static void main(String[] args) {
 		Main main = new Main();
+		String record = CommandLine.option(args, "record", null);
+		String replay = CommandLine.option(args, "replay", null);
+		main.targetFrameMs = Double.parseDouble(CommandLine.option(args, "target-ms", "0"));
+		if (replay != null) {
+			main.replayPath = CameraPath.load(replay);
+		} else if (record != null) {
+			main.recordPath = new CameraPath();
+			main.recordFile = record;
+		}
 		try {
 			SwingUtilities.invokeAndWait(main);
 		} catch (InvocationTargetException e) {
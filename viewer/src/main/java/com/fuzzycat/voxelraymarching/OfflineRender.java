@@ -0,0 +1,130 @@
+package com.fuzzycat.voxelraymarching;
+
+import java.io.File;
+
+import com.fuzzycat.voxelraymarching.graphics.Camera;
+import com.fuzzycat.voxelraymarching.graphics.CameraPath;
+import com.fuzzycat.voxelraymarching.graphics.DynamicResolution;
+import com.fuzzycat.voxelraymarching.graphics.FrameBuffer;
+import com.fuzzycat.voxelraymarching.graphics.Material;
+import com.fuzzycat.voxelraymarching.graphics.PhotoSphere;
+import com.fuzzycat.voxelraymarching.graphics.Render;
+import com.fuzzycat.voxelraymarching.graphics.RenderContext;
+import com.fuzzycat.voxelraymarching.graphics.Scene;
+import com.fuzzycat.voxelraymarching.util.CommandLine;
+import com.fuzzycat.voxelraymarching.util.Timings;
+import com.fuzzycat.voxelraymarching.voxel.DistanceFieldEncoding;
+import com.fuzzycat.voxelraymarching.voxel.FieldCache;
+import com.fuzzycat.voxelraymarching.voxel.NormalFieldEncoding;
+import com.fuzzycat.voxelraymarching.voxel.OnDemandNormalField;
+import com.fuzzycat.voxelraymarching.voxel.VoxelLayout;
+import com.fuzzycat.voxelraymarching.voxel.VoxelModel;
+
+/* Renders frames to image files without a window, so it runs on machines without a display. Either a single orbit pose
+ * or every pose of a recorded camera path (see Main --record) is rendered:
+ *   java -cp viewer/target/voxelraymarching-viewer.jar com.fuzzycat.voxelraymarching.OfflineRender
+ *        --model skull_330x.bin --photosphere beach_blurred_1.png
+ *        --width 1920 --height 1080 --poses flight.txt --output frame_%04d.png
+ * Options: --dimension (330), --delta (7), --fov (60), --threads, --yaw, --pitch, --distance, --format png|raw, --ratio
+ * (diffuse/specular ratio, 0.3), --color (diffuse color, ffffff), --sdf (distance field encoding, DOUBLE, FLOAT with
+ * --cache), --normals (normal field encoding, OCTAHEDRAL or ON_DEMAND), --layout (cell order, LINEAR or TILED), --cache
+ * (field cache directory, see FieldCache; needs --sdf FLOAT, --normals OCTAHEDRAL and --layout LINEAR), --packet (rays
+ * marched together, 1 marches one at a time), --target-ms (frame time held by dynamic resolution, off by default),
+ * --vector (on marches the packets on the Vector API, experimental; needs --packet, --sdf DOUBLE, --layout LINEAR and
+ * java --add-modules jdk.incubator.vector, off by default). */
+public class OfflineRender {
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		String modelFile = CommandLine.option(args, "model", "skull_330x.bin");
+		String photoSphereFile = CommandLine.option(args, "photosphere", "beach_blurred_1.png");
+		int s = Integer.parseInt(CommandLine.option(args, "dimension", "330"));
+		int delta = Integer.parseInt(CommandLine.option(args, "delta", "7"));
+		int width = Integer.parseInt(CommandLine.option(args, "width", "800"));
+		int height = Integer.parseInt(CommandLine.option(args, "height", "700"));
+		double fov = Double.parseDouble(CommandLine.option(args, "fov", "60"));
+		int threads = Integer.parseInt(CommandLine.option(args, "threads", "" + Runtime.getRuntime().availableProcessors()));
+		String posesFile = CommandLine.option(args, "poses", null);
+		String output = CommandLine.option(args, "output", "render.png");
+		String format = CommandLine.option(args, "format", output.endsWith(".raw") ? "raw" : "png");
+
+		long loadStart = System.nanoTime();
+		String cacheDirectory = CommandLine.option(args, "cache", null);
+		VoxelModel.Options options = new VoxelModel.Options();
+		options.normalDelta = delta;
+		options.sdfEncoding = DistanceFieldEncoding.valueOf(CommandLine.option(args, "sdf", cacheDirectory != null ? "FLOAT" : "DOUBLE"));
+		options.normalEncoding = NormalFieldEncoding.valueOf(CommandLine.option(args, "normals", "OCTAHEDRAL"));
+		options.layout = VoxelLayout.valueOf(CommandLine.option(args, "layout", "LINEAR"));
+		VoxelModel model = cacheDirectory != null ? FieldCache.load(modelFile, s, options, new File(cacheDirectory))
+												  : VoxelModel.load(modelFile, s, options);
+		PhotoSphere photoSphere = ImageFiles.loadPhotoSphere(photoSphereFile);
+		System.out.println(String.format("Loaded %s in %.1f ms", modelFile, (System.nanoTime() - loadStart) / 1.0e6));
+
+		Material material = new Material(Double.parseDouble(CommandLine.option(args, "ratio", "0.3")),
+										 Integer.parseInt(CommandLine.option(args, "color", "ffffff"), 16));
+		FrameBuffer frameBuffer = new FrameBuffer(width, height);
+		RenderContext renderContext = new Scene(model, photoSphere, material).createContext(frameBuffer);
+		renderContext.packetWidth = Integer.parseInt(CommandLine.option(args, "packet", "1"));
+		renderContext.vectorPackets = CommandLine.option(args, "vector", "off").equals("on");
+
+		CameraPath path = posesFile != null ? CameraPath.load(posesFile) : null;
+		int frames = path != null ? path.size() : 1;
+
+		Render render = new Render(width, height, fov, threads);
+		Camera cam = render.getCamera();
+		double targetMs = Double.parseDouble(CommandLine.option(args, "target-ms", "0"));
+		if (targetMs > 0.0) {
+			render.setDynamicResolution(new DynamicResolution((long) (targetMs * 1.0e6)));
+		}
+		render.begin();
+		long[] frameTimes = new long[frames];
+		for (int i = 0; i < frames; i++) {
+			if (path != null) {
+				path.apply(i, cam);
+			} else {
+				cam.orbit(Double.parseDouble(CommandLine.option(args, "yaw", "0.6")),
+						  Double.parseDouble(CommandLine.option(args, "pitch", "0.3")),
+						  Double.parseDouble(CommandLine.option(args, "distance", "0.9")));
+			}
+
+			double scale = targetMs > 0.0 ? render.getDynamicResolution().getScale() : 1.0;
+			long frameStart = System.nanoTime();
+			render.rayMarchVoxels(renderContext);
+			frameTimes[i] = System.nanoTime() - frameStart;
+
+			String filename = frameFilename(output, i, frames);
+			if (format.equals("raw")) {
+				ImageFiles.writeRaw(filename, frameBuffer.pixels, width, height);
+			} else {
+				ImageFiles.writePNG(filename, frameBuffer.pixels, width, height);
+			}
+			System.out.println(String.format("Frame %d: %.3f ms at %.0f%% resolution -> %s", i, frameTimes[i] / 1.0e6, 100.0 * scale, filename));
+		}
+		render.end();
+
+		double meanSeconds = Timings.mean(frameTimes) / 1.0e9;
+		System.out.println(String.format("%d frames at %dx%d, %d threads, %.1f frames/s, %.0f rays/s",
+				frames, width, height, threads, 1.0 / meanSeconds, width * (double) height / meanSeconds));
+		System.out.println("Frame time: " + Timings.distribution(frameTimes));
+		if (model.normals instanceof OnDemandNormalField) {
+			System.out.println(String.format("Normal cache hit rate: %.4f", ((OnDemandNormalField) model.normals).getHitRate()));
+		}
+	}
+
+	/* 'output' may contain a format specifier for the frame number, e.g. "frame_%04d.png". Otherwise the number is
+	 * inserted before the extension when there is more than one frame. */
+	private static String frameFilename(String output, int frame, int frames) {
+		if (output.contains("%")) {
+			return String.format(output, frame);
+		}
+		if (frames == 1) {
+			return output;
+		}
+		int dot = output.lastIndexOf('.');
+		if (dot < 0) {
+			return output + "_" + frame;
+		}
+		return output.substring(0, dot) + "_" + frame + output.substring(dot);
+	}
+}